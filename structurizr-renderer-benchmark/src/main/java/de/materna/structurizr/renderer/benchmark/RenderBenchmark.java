@@ -0,0 +1,214 @@
+package de.materna.structurizr.renderer.benchmark;
+
+import de.materna.structurizr.renderer.Renderer;
+import de.materna.structurizr.renderer.StructurizrRenderingException;
+import de.materna.structurizr.renderer.WorkspaceRenderer;
+import de.materna.structurizr.renderer.plantuml.PlantumlLayoutEngine;
+import lombok.SneakyThrows;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end benchmark rendering a synthetic workspace with the {@link WorkspaceRenderer}. Each view is rendered
+ * separately, like done by the Asciidoctor integrations, to measure throughput, per-view latency and peak heap usage.
+ * The first iteration of a renderer is reported as cold run, all further iterations as warm runs. Every iteration
+ * renders into a fresh output directory with a fresh {@link WorkspaceRenderer}, i.e. warm runs render every view again
+ * and only benefit from the warmed-up JVM, e.g. loaded classes and compiled code, but not from cached diagrams. The peak
+ * heap usage is sampled every {@value #HEAP_SAMPLING_INTERVAL_MILLIS} ms while rendering, so it is an approximation
+ * missing short-lived peaks between two samples. The heap usage per element is derived from the difference in peak heap usage between the workspace and a generated baseline workspace
+ * with a tenth of its elements and relationships, both generated anew and rendered with fresh renderers, so that memory
+ * independent of the workspace size, e.g. of the JVM and the rendering libraries, is not attributed to the elements.
+ */
+@CommandLine.Command(name = "benchmark", description = "Renders a synthetic workspace and reports throughput, latency and memory usage")
+public class RenderBenchmark implements Runnable {
+
+    private static final long HEAP_SAMPLING_INTERVAL_MILLIS = 10;
+
+    @CommandLine.Option(names = {"--elements"}, description = "Number of elements in the model. Defaults to 100.")
+    private int elements = 100;
+
+    @CommandLine.Option(names = {"--relationships"}, description = "Number of relationships in the model. Defaults to 150.")
+    private int relationships = 150;
+
+    @CommandLine.Option(names = {"--views"}, description = "Number of views. Defaults to 10.")
+    private int views = 10;
+
+    @CommandLine.Option(names = {"--includeDepth"}, description = "Number of nested !include files. Defaults to 0.")
+    private int includeDepth = 0;
+
+    @CommandLine.Option(names = {"-r", "--renderer"}, split = ",", description = "Renderers to benchmark as RENDERER[:LAYOUT_ENGINE]. Defaults to PLANTUML_C4:SMETANA,PLANTUML_C4:ELK.")
+    private List<String> renderers = List.of("PLANTUML_C4:SMETANA", "PLANTUML_C4:ELK");
+
+    @CommandLine.Option(names = {"--warmIterations"}, description = "Number of warm iterations per renderer. Defaults to 3.")
+    private int warmIterations = 3;
+
+    @CommandLine.Option(names = {"-d", "--workDir"}, description = "Directory to generate the workspace and render into. Defaults to a temporary directory.")
+    private Path workDir;
+
+    @CommandLine.Option(names = {"-p", "--playwrightWsEndpoint"}, description = "The Playwright URI to connect to if a running installation should be used.")
+    private String playwrightWsEndpoint;
+
+    public static void main(String[] args) {
+        CommandLine.run(new RenderBenchmark(), args);
+    }
+
+    @SneakyThrows
+    @Override
+    public void run() {
+        Path baseDir = this.workDir != null ? this.workDir : Files.createTempDirectory("structurizr-benchmark");
+        WorkspaceGenerator.GeneratedWorkspace workspace = WorkspaceGenerator.builder()
+                .elements(this.elements)
+                .relationships(this.relationships)
+                .views(this.views)
+                .includeDepth(this.includeDepth)
+                .build()
+                .generate(baseDir.resolve("workspace"));
+
+        System.out.printf("Workspace: %d elements, %d relationships, %d views, include depth %d (%s)%n",
+                workspace.elements(), workspace.relationships(), workspace.viewKeys().size(), this.includeDepth, workspace.workspacePath());
+        System.out.printf("%-24s %-5s %10s %10s %10s %10s %10s %12s%n",
+                "renderer", "run", "views/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "peak heap MB");
+
+        for (String rendererSpec : this.renderers) {
+            String[] parts = rendererSpec.split(":");
+            Renderer renderer = Renderer.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+            PlantumlLayoutEngine layoutEngine = parts.length > 1 ? PlantumlLayoutEngine.valueOf(parts[1].trim().toUpperCase(Locale.ROOT)) : null;
+
+            for (int iteration = 0; iteration <= this.warmIterations; iteration++) {
+                Path outputDir = baseDir.resolve("output").resolve(rendererSpec.replace(':', '_')).resolve(String.valueOf(iteration));
+                try (WorkspaceRenderer workspaceRenderer = new WorkspaceRenderer()) {
+                    report(rendererSpec, iteration == 0 ? "cold" : "warm", runIteration(workspaceRenderer, workspace, outputDir, renderer, layoutEngine));
+                }
+            }
+            reportHeapPerElement(rendererSpec, baseDir, renderer, layoutEngine);
+        }
+    }
+
+    private void reportHeapPerElement(String rendererSpec, Path baseDir, Renderer renderer, PlantumlLayoutEngine layoutEngine) throws StructurizrRenderingException, IOException {
+        Path heapDir = baseDir.resolve("heap").resolve(rendererSpec.replace(':', '_'));
+        WorkspaceGenerator.GeneratedWorkspace workspace = generateHeapWorkspace(this.elements, this.relationships, heapDir.resolve("workspace"));
+        WorkspaceGenerator.GeneratedWorkspace baseline = generateHeapWorkspace(Math.max(1, this.elements / 10), this.relationships / 10, heapDir.resolve("baseline"));
+        int elementDelta = workspace.elements() - baseline.elements();
+        if (elementDelta <= 0) {
+            System.out.printf("%-24s heap/element: workspace too small to compare with baseline%n", rendererSpec);
+            return;
+        }
+        long baselinePeak;
+        try (WorkspaceRenderer workspaceRenderer = new WorkspaceRenderer()) {
+            baselinePeak = runIteration(workspaceRenderer, baseline, heapDir.resolve("output").resolve("baseline"), renderer, layoutEngine).peakHeapBytes();
+        }
+        long workspacePeak;
+        try (WorkspaceRenderer workspaceRenderer = new WorkspaceRenderer()) {
+            workspacePeak = runIteration(workspaceRenderer, workspace, heapDir.resolve("output").resolve("workspace"), renderer, layoutEngine).peakHeapBytes();
+        }
+        System.out.printf(Locale.ROOT, "%-24s heap/element: %.2f KB (peak %.1f MB for %d elements, %.1f MB for %d baseline elements)%n",
+                rendererSpec,
+                (workspacePeak - baselinePeak) / 1024.0 / elementDelta,
+                workspacePeak / (1024.0 * 1024.0),
+                workspace.elements(),
+                baselinePeak / (1024.0 * 1024.0),
+                baseline.elements());
+    }
+
+    private IterationResult runIteration(WorkspaceRenderer workspaceRenderer, WorkspaceGenerator.GeneratedWorkspace workspace, Path outputDir,
+                                         Renderer renderer, PlantumlLayoutEngine layoutEngine) throws StructurizrRenderingException, IOException {
+        Files.createDirectories(outputDir);
+        List<Long> latencies = new ArrayList<>();
+        System.gc();
+
+        try (HeapSampler heapSampler = new HeapSampler()) {
+            long start = System.nanoTime();
+            for (String viewKey : workspace.viewKeys()) {
+                long viewStart = System.nanoTime();
+                workspaceRenderer.render(workspace.workspacePath(), null, outputDir, viewKey, renderer, layoutEngine, this.playwrightWsEndpoint);
+                latencies.add(System.nanoTime() - viewStart);
+            }
+            long duration = System.nanoTime() - start;
+            return new IterationResult(latencies, duration, heapSampler.getPeakHeapBytes());
+        }
+    }
+
+    private WorkspaceGenerator.GeneratedWorkspace generateHeapWorkspace(int elements, int relationships, Path targetDir) throws IOException {
+        return WorkspaceGenerator.builder()
+                .elements(elements)
+                .relationships(relationships)
+                .views(this.views)
+                .includeDepth(this.includeDepth)
+                .build()
+                .generate(targetDir);
+    }
+
+    private void report(String rendererSpec, String run, IterationResult result) {
+        List<Long> latencies = new ArrayList<>(result.latencies());
+        Collections.sort(latencies);
+        double viewsPerSecond = latencies.size() / (result.durationNanos() / 1e9);
+        System.out.printf(Locale.ROOT, "%-24s %-5s %10.2f %10.1f %10.1f %10.1f %10.1f %12.1f%n",
+                rendererSpec,
+                run,
+                viewsPerSecond,
+                percentile(latencies, 50) / 1e6,
+                percentile(latencies, 90) / 1e6,
+                percentile(latencies, 99) / 1e6,
+                latencies.get(latencies.size() - 1) / 1e6,
+                result.peakHeapBytes() / (1024.0 * 1024.0));
+    }
+
+    private static long percentile(List<Long> sortedValues, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedValues.size()) - 1;
+        return sortedValues.get(Math.max(0, Math.min(index, sortedValues.size() - 1)));
+    }
+
+    /*
+     * Samples the used heap of the JVM periodically, as the peak usages of the individual memory pools are reached at
+     * different points in time and can not be summed up to the peak of the heap
+     */
+    private static final class HeapSampler implements AutoCloseable {
+
+        private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+
+        private final AtomicLong peakHeapBytes = new AtomicLong();
+
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "heap-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        private HeapSampler() {
+            sample();
+            this.executor.scheduleAtFixedRate(this::sample, HEAP_SAMPLING_INTERVAL_MILLIS, HEAP_SAMPLING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        private void sample() {
+            this.peakHeapBytes.accumulateAndGet(this.memoryBean.getHeapMemoryUsage().getUsed(), Math::max);
+        }
+
+        private long getPeakHeapBytes() {
+            sample();
+            return this.peakHeapBytes.get();
+        }
+
+        @Override
+        public void close() {
+            this.executor.shutdownNow();
+        }
+
+    }
+
+    private record IterationResult(List<Long> latencies, long durationNanos, long peakHeapBytes) {
+    }
+
+}
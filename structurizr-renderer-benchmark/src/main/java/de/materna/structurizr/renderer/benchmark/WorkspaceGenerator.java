@@ -0,0 +1,183 @@
+package de.materna.structurizr.renderer.benchmark;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates synthetic Structurizr DSL workspaces of a configurable size. The model is made up of people, software
+ * systems and their containers, spread across a chain of included files to exercise the include handling of the parser.
+ * Generation is deterministic for a given seed.
+ */
+@Getter
+@Builder
+public class WorkspaceGenerator {
+
+    private static final String WORKSPACE_FILE_NAME = "workspace.dsl";
+
+    /**
+     * Total number of people, software systems and containers.
+     */
+    @Builder.Default
+    private final int elements = 100;
+
+    @Builder.Default
+    private final int relationships = 150;
+
+    @Builder.Default
+    private final int views = 10;
+
+    /**
+     * Number of nested !include files the model is spread across, 0 to define the model inline.
+     */
+    @Builder.Default
+    private final int includeDepth = 0;
+
+    @Builder.Default
+    private final long seed = 42;
+
+    /**
+     * Writes the workspace to the given directory.
+     *
+     * @param targetDir The directory to write the workspace files to.
+     *
+     * @return The generated workspace.
+     *
+     * @throws IOException In case the files could not be written.
+     */
+    public GeneratedWorkspace generate(Path targetDir) throws IOException {
+        Random random = new Random(this.seed);
+        Files.createDirectories(targetDir);
+
+        // roughly 10% people, 10% software systems and the remaining elements as containers
+        int people = Math.max(1, this.elements / 10);
+        int systems = Math.max(1, this.elements / 10);
+        int containers = Math.max(0, this.elements - people - systems);
+
+        List<ModelElement> modelElements = new ArrayList<>();
+        for (int i = 0; i < people; i++) {
+            modelElements.add(new ModelElement("p" + i, null));
+        }
+        for (int i = 0; i < systems; i++) {
+            modelElements.add(new ModelElement("s" + i, null));
+        }
+        for (int i = 0; i < containers; i++) {
+            modelElements.add(new ModelElement("c" + i, "s" + random.nextInt(systems)));
+        }
+
+        // chunks of the model, one per file, the first one being the workspace itself
+        int chunks = this.includeDepth + 1;
+        List<StringBuilder> modelChunks = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            modelChunks.add(new StringBuilder());
+        }
+        for (int i = 0; i < people; i++) {
+            modelChunks.get(i % chunks).append("        p").append(i).append(" = person \"Person ").append(i).append("\"\n");
+        }
+        for (int i = 0; i < systems; i++) {
+            StringBuilder chunk = modelChunks.get(i % chunks);
+            chunk.append("        s").append(i).append(" = softwareSystem \"System ").append(i).append("\" {\n");
+            for (ModelElement container : modelElements) {
+                if (("s" + i).equals(container.parent())) {
+                    chunk.append("            ").append(container.identifier())
+                            .append(" = container \"Container ").append(container.identifier().substring(1)).append("\"\n");
+                }
+            }
+            chunk.append("        }\n");
+        }
+
+        for (int i = 1; i < chunks; i++) {
+            if (i < chunks - 1) {
+                modelChunks.get(i).append("        !include ").append(includeFileName(i + 1)).append('\n');
+            }
+            Files.writeString(targetDir.resolve(includeFileName(i)), modelChunks.get(i).toString(), StandardCharsets.UTF_8);
+        }
+
+        StringBuilder dsl = new StringBuilder();
+        dsl.append("workspace \"Synthetic workspace\" {\n\n");
+        dsl.append("    model {\n");
+        dsl.append(modelChunks.get(0));
+        if (chunks > 1) {
+            dsl.append("        !include ").append(includeFileName(1)).append('\n');
+        }
+        int generatedRelationships = appendRelationships(dsl, modelElements, random);
+        dsl.append("    }\n\n");
+
+        List<String> viewKeys = appendViews(dsl, systems);
+        dsl.append("}\n");
+
+        Path workspacePath = targetDir.resolve(WORKSPACE_FILE_NAME);
+        Files.writeString(workspacePath, dsl.toString(), StandardCharsets.UTF_8);
+        return new GeneratedWorkspace(workspacePath, viewKeys, modelElements.size(), generatedRelationships);
+    }
+
+    private int appendRelationships(StringBuilder dsl, List<ModelElement> modelElements, Random random) {
+        Set<String> existing = new HashSet<>();
+        int generated = 0;
+        // bounded number of attempts, small models may not allow the requested number of distinct relationships
+        for (int attempt = 0; generated < this.relationships && attempt < this.relationships * 10; attempt++) {
+            ModelElement source = modelElements.get(random.nextInt(modelElements.size()));
+            ModelElement destination = modelElements.get(random.nextInt(modelElements.size()));
+            if (source == destination || source.isParentOrChildOf(destination)
+                    || !existing.add(source.identifier() + "->" + destination.identifier())) {
+                continue;
+            }
+            dsl.append("        ").append(source.identifier()).append(" -> ").append(destination.identifier())
+                    .append(" \"Uses ").append(generated).append("\"\n");
+            generated++;
+        }
+        return generated;
+    }
+
+    private List<String> appendViews(StringBuilder dsl, int systems) {
+        List<String> viewKeys = new ArrayList<>();
+        dsl.append("    views {\n");
+        for (int i = 0; i < this.views; i++) {
+            String key = "view-" + i;
+            viewKeys.add(key);
+            if (i == 0) {
+                dsl.append("        systemLandscape \"").append(key).append("\" {\n");
+            } else if (i % 2 == 1) {
+                dsl.append("        systemContext s").append((i / 2) % systems).append(" \"").append(key).append("\" {\n");
+            } else {
+                dsl.append("        container s").append((i / 2) % systems).append(" \"").append(key).append("\" {\n");
+            }
+            dsl.append("            include *\n");
+            dsl.append("            autoLayout\n");
+            dsl.append("        }\n");
+        }
+        dsl.append("    }\n");
+        return viewKeys;
+    }
+
+    private static String includeFileName(int index) {
+        return "model-" + index + ".dsl";
+    }
+
+    private record ModelElement(String identifier, String parent) {
+
+        boolean isParentOrChildOf(ModelElement other) {
+            return identifier.equals(other.parent) || other.identifier.equals(parent);
+        }
+
+    }
+
+    /**
+     * @param workspacePath The path of the generated workspace DSL file.
+     * @param viewKeys The keys of all generated views.
+     * @param elements The number of generated elements.
+     * @param relationships The number of generated relationships.
+     */
+    public record GeneratedWorkspace(Path workspacePath, List<String> viewKeys, int elements, int relationships) {
+    }
+
+}
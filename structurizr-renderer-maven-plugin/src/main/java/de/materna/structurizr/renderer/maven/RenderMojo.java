@@ -0,0 +1,278 @@
+package de.materna.structurizr.renderer.maven;
+
+import de.materna.structurizr.renderer.Renderer;
+import de.materna.structurizr.renderer.WorkspaceRenderer;
+import de.materna.structurizr.renderer.plantuml.PlantumlLayoutEngine;
+import de.materna.structurizr.renderer.theme.ThemeCache;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Renders all workspaces found in the source directory. Workspaces whose content and rendering configuration did not
+ * change since the last run are skipped, all other workspaces and their views are rendered in parallel inside the build
+ * JVM.
+ */
+@Mojo(name = "render", defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = true)
+public class RenderMojo extends AbstractMojo {
+
+    private static final String STATE_FILE_NAME = ".structurizr-renderer.properties";
+
+    private static final String THEMES_STATE_SUFFIX = ".themes";
+
+    private static final String OUTPUT_STATE_SUFFIX = ".output";
+
+    /**
+     * Directory to search for workspaces in.
+     */
+    @Parameter(property = "structurizr.sourceDirectory", defaultValue = "${project.basedir}/src/docs/structurizr")
+    private File sourceDirectory;
+
+    /**
+     * Glob patterns, relative to the source directory, of the workspace DSL files to render.
+     */
+    @Parameter
+    private List<String> includes = List.of("**/workspace.dsl");
+
+    /**
+     * Directory to write the rendered diagrams to. The directory structure of the source directory is retained.
+     */
+    @Parameter(property = "structurizr.outputDirectory", defaultValue = "${project.build.directory}/structurizr")
+    private File outputDirectory;
+
+    /**
+     * The renderer to use. Defaults to STRUCTURIZR.
+     */
+    @Parameter(property = "structurizr.renderer", defaultValue = "STRUCTURIZR")
+    private Renderer renderer;
+
+    /**
+     * The layout engine to use for the PLANTUML_C4 renderer. Defaults to GRAPHVIZ.
+     */
+    @Parameter(property = "structurizr.plantumlLayoutEngine", defaultValue = "GRAPHVIZ")
+    private PlantumlLayoutEngine plantumlLayoutEngine;
+
+    /**
+     * The Playwright URI to connect to if a running installation should be used.
+     */
+    @Parameter(property = "structurizr.playwrightWsEndpoint")
+    private String playwrightWsEndpoint;
+
+    /**
+     * Directory to cache the themes referenced by workspaces in. Defaults to ~/.structurizr-renderer/themes.
+     */
+    @Parameter(property = "structurizr.themeCacheDirectory")
+    private File themeCacheDirectory;
+
+    /**
+     * Resolves themes from the theme cache only, without network access. Follows the offline mode of Maven by default.
+     */
+    @Parameter(property = "structurizr.offline", defaultValue = "${settings.offline}")
+    private boolean offline;
+
+    /**
+     * Number of workspaces and number of views to render in parallel. Defaults to the number of available processors.
+     */
+    @Parameter(property = "structurizr.threads", defaultValue = "0")
+    private int threads;
+
+    /**
+     * Skips the rendering.
+     */
+    @Parameter(property = "structurizr.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    private String pluginVersion;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (this.skip) {
+            getLog().info("Rendering of Structurizr workspaces skipped.");
+            return;
+        } else if (!this.sourceDirectory.isDirectory()) {
+            getLog().info("Source directory " + this.sourceDirectory + " does not exist. Nothing to render.");
+            return;
+        }
+
+        Path sourcePath = this.sourceDirectory.toPath().toAbsolutePath();
+        Path outputPath = this.outputDirectory.toPath().toAbsolutePath();
+        List<Path> workspaces = discoverWorkspaces(sourcePath);
+        Properties state = loadState(outputPath);
+        ThemeCache themeCache = new ThemeCache(
+                this.themeCacheDirectory != null ? this.themeCacheDirectory.toPath() : ThemeCache.defaultCacheDir(),
+                ThemeCache.DEFAULT_TTL,
+                this.offline);
+
+        int threadCount = this.threads > 0 ? this.threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService viewExecutor = Executors.newFixedThreadPool(threadCount);
+        ExecutorService workspaceExecutor = Executors.newFixedThreadPool(threadCount);
+        // one renderer per thread, so that each workspace rendered concurrently by STRUCTURIZR gets its own browser
+        List<WorkspaceRenderer> createdRenderers = Collections.synchronizedList(new ArrayList<>());
+        ThreadLocal<WorkspaceRenderer> workspaceRenderers = ThreadLocal.withInitial(() -> {
+            WorkspaceRenderer workspaceRenderer = new WorkspaceRenderer(viewExecutor, themeCache);
+            createdRenderers.add(workspaceRenderer);
+            return workspaceRenderer;
+        });
+        try {
+            Set<Path> changedFiles = ConcurrentHashMap.newKeySet();
+            List<Future<?>> renderedWorkspaces = new ArrayList<>();
+            int upToDate = 0;
+            for (Path workspace : workspaces) {
+                String workspaceId = sourcePath.relativize(workspace).toString().replace('\\', '/');
+                Path workspaceOutputPath = outputPath.resolve(sourcePath.relativize(workspace.getParent()));
+                String fingerprint = WorkspaceFingerprint.of(workspace, resolveWorkspaceJsonPath(workspace), getRenderingConfiguration(), outputPath);
+
+                if (isUpToDate(state, workspaceId, fingerprint, themeCache, workspaceOutputPath)) {
+                    getLog().debug("Workspace " + workspaceId + " is up-to-date.");
+                    upToDate++;
+                    continue;
+                }
+
+                renderedWorkspaces.add(workspaceExecutor.submit(() -> {
+                    getLog().info("Rendering workspace " + workspaceId);
+                    Map<Path, String> before = WorkspaceFingerprint.snapshot(workspaceOutputPath);
+                    WorkspaceRenderer workspaceRenderer = workspaceRenderers.get();
+                    Map<String, Path> renderedFiles = workspaceRenderer.render(workspace, resolveWorkspaceJsonPath(workspace), workspaceOutputPath, null,
+                            this.renderer, this.plantumlLayoutEngine, this.playwrightWsEndpoint);
+                    // the workspace is not parsed if all of its diagrams are up-to-date, still its themes need to be known
+                    String themesFingerprint = themeCache.fingerprint(workspaceRenderer.getReferencedThemes(workspace));
+                    WorkspaceFingerprint.snapshot(workspaceOutputPath).forEach((file, hash) -> {
+                        if (!hash.equals(before.get(file))) {
+                            changedFiles.add(file);
+                        }
+                    });
+
+                    // persist after every workspace so that a failure does not discard the progress made so far
+                    synchronized (state) {
+                        state.setProperty(workspaceId, fingerprint);
+                        state.setProperty(workspaceId + THEMES_STATE_SUFFIX, themesFingerprint);
+                        state.setProperty(workspaceId + OUTPUT_STATE_SUFFIX, WorkspaceFingerprint.ofOutput(renderedFiles.values(), workspaceOutputPath));
+                        storeState(outputPath, state);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> renderedWorkspace : renderedWorkspaces) {
+                renderedWorkspace.get();
+            }
+
+            getLog().info("Rendered " + (workspaces.size() - upToDate) + " workspace(s), " + upToDate + " up-to-date.");
+            if (changedFiles.isEmpty()) {
+                getLog().info("No rendered files changed.");
+            } else {
+                getLog().info("Changed files:");
+                changedFiles.stream().sorted().forEach(file -> getLog().info("  " + outputPath.relativize(file)));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to determine the state of the workspaces", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new MojoExecutionException("Failed to determine the state of the workspaces", e.getCause());
+            }
+            throw new MojoExecutionException("Failed to render workspace", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while rendering workspaces", e);
+        } finally {
+            workspaceExecutor.shutdownNow();
+            // the build JVM lives on, i.e. the threads and browsers of the renderers must not outlive this execution
+            synchronized (createdRenderers) {
+                createdRenderers.forEach(WorkspaceRenderer::close);
+            }
+            viewExecutor.shutdownNow();
+        }
+    }
+
+    /*
+     * The themes referenced by a workspace are only known once parsed, i.e. the ones of the last run are checked. The
+     * rendered files are compared with the last run as well, so that deleted or modified diagrams are rendered again.
+     */
+    private boolean isUpToDate(Properties state, String workspaceId, String fingerprint, ThemeCache themeCache, Path workspaceOutputPath) throws IOException {
+        String themesFingerprint = state.getProperty(workspaceId + THEMES_STATE_SUFFIX);
+        String outputFingerprint = state.getProperty(workspaceId + OUTPUT_STATE_SUFFIX);
+        return fingerprint.equals(state.getProperty(workspaceId))
+                && themesFingerprint != null && themeCache.isCurrent(themesFingerprint)
+                && outputFingerprint != null && WorkspaceFingerprint.isCurrentOutput(outputFingerprint, workspaceOutputPath);
+    }
+
+    private List<Path> discoverWorkspaces(Path sourcePath) throws MojoExecutionException {
+        List<PathMatcher> matchers = this.includes.stream()
+                .map(include -> FileSystems.getDefault().getPathMatcher("glob:" + include))
+                .toList();
+        try (Stream<Path> files = Files.walk(sourcePath)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> {
+                        Path relativePath = sourcePath.relativize(file);
+                        // "**/" requires at least one directory for Java globs, but shall also match top-level files
+                        return matchers.stream().anyMatch(m -> m.matches(relativePath) || m.matches(Path.of("_").resolve(relativePath)));
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to discover workspaces in " + sourcePath, e);
+        }
+    }
+
+    /*
+     * A manual layout is expected as JSON file next to the DSL file, e.g. workspace.json for workspace.dsl
+     */
+    private Path resolveWorkspaceJsonPath(Path workspace) {
+        String fileName = workspace.getFileName().toString();
+        int extensionIndex = fileName.lastIndexOf('.');
+        String baseName = extensionIndex > 0 ? fileName.substring(0, extensionIndex) : fileName;
+        Path workspaceJsonPath = workspace.resolveSibling(baseName + ".json");
+        return Files.isRegularFile(workspaceJsonPath) ? workspaceJsonPath : null;
+    }
+
+    private String getRenderingConfiguration() {
+        return "renderer=" + this.renderer
+                + ";plantumlLayoutEngine=" + this.plantumlLayoutEngine
+                + ";version=" + this.pluginVersion;
+    }
+
+    private Properties loadState(Path outputPath) {
+        Properties state = new Properties();
+        Path stateFile = outputPath.resolve(STATE_FILE_NAME);
+        if (Files.isRegularFile(stateFile)) {
+            try (InputStream is = Files.newInputStream(stateFile)) {
+                state.load(is);
+            } catch (IOException e) {
+                getLog().warn("Unable to read render state " + stateFile + ". Rendering all workspaces.", e);
+                state.clear();
+            }
+        }
+        return state;
+    }
+
+    private void storeState(Path outputPath, Properties state) throws IOException {
+        Files.createDirectories(outputPath);
+        try (OutputStream os = Files.newOutputStream(outputPath.resolve(STATE_FILE_NAME))) {
+            state.store(os, "Fingerprints of rendered Structurizr workspaces");
+        }
+    }
+
+}
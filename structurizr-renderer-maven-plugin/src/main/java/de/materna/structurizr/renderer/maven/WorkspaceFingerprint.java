@@ -0,0 +1,181 @@
+package de.materna.structurizr.renderer.maven;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content based fingerprints of workspaces and rendered output files. In contrast to modification times, these stay
+ * stable across fresh checkouts, e.g. on CI agents.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class WorkspaceFingerprint {
+
+    private static final Set<String> OUTPUT_EXTENSIONS = Set.of(".svg", ".puml", ".mmd");
+
+    // an unquoted path ends before the block of "workspace extends", except for the braces of constants
+    private static final Pattern INCLUDE = Pattern.compile("^\\s*(?:!include|workspace\\s+extends)\\s+(\"[^\"]+\"|(?:\\$\\{[^}]*}|[^\\s{])+)");
+
+    /**
+     * Builds the fingerprint of a workspace from the DSL file, the files it includes via {@code !include} or
+     * {@code workspace extends}, also nested and outside the directory of the workspace, and the optional layout JSON
+     * file. Included URLs are not taken into account. As an include whose path contains a constant can not be resolved
+     * without parsing the workspace, all files in the directory of the including file are taken into account instead.
+     * Further referenced files, e.g. images, documentation or scripts, are not taken into account.
+     *
+     * @param workspaceDslPath The path of the workspace DSL file.
+     * @param workspaceJsonPath The path of the layout JSON file of the workspace or null, if there is none.
+     * @param renderingConfiguration The configuration the workspace is rendered with.
+     * @param outputDir The directory rendered files are written to, excluded in case it is located inside a directory taken into account.
+     *
+     * @return The fingerprint as hex string.
+     *
+     * @throws IOException In case a file of the workspace could not be read.
+     */
+    static String of(Path workspaceDslPath, Path workspaceJsonPath, String renderingConfiguration, Path outputDir) throws IOException {
+        Path workspaceDir = workspaceDslPath.toAbsolutePath().getParent();
+        Set<Path> files = new TreeSet<>();
+        collectFiles(workspaceDslPath.toAbsolutePath().normalize(), files, outputDir.toAbsolutePath().normalize());
+        if (workspaceJsonPath != null) {
+            files.add(workspaceJsonPath.toAbsolutePath().normalize());
+        }
+
+        MessageDigest md = newDigest();
+        md.update(("config=" + renderingConfiguration + "\n").getBytes(StandardCharsets.UTF_8));
+        md.update(("workspace=" + workspaceDslPath.getFileName() + "\n").getBytes(StandardCharsets.UTF_8));
+        for (Path file : files) {
+            md.update(("file=" + workspaceDir.relativize(file).toString().replace('\\', '/') + "\n").getBytes(StandardCharsets.UTF_8));
+            // a missing include fails the parser, but it may be created later on
+            if (Files.isRegularFile(file)) {
+                md.update(Files.readAllBytes(file));
+            }
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    private static void collectFiles(Path file, Set<Path> files, Path excludedDir) throws IOException {
+        if (!files.add(file) || !Files.isRegularFile(file)) {
+            return;
+        }
+        for (String line : new String(Files.readAllBytes(file), StandardCharsets.UTF_8).lines().toList()) {
+            Matcher include = INCLUDE.matcher(line);
+            if (!include.find()) {
+                continue;
+            }
+            String target = include.group(1).replace("\"", "");
+            if (target.startsWith("http://") || target.startsWith("https://")) {
+                continue;
+            }
+            List<Path> includedFiles = target.contains("${") ?
+                    listFiles(file.getParent(), excludedDir) :
+                    listFiles(file.getParent().resolve(target).normalize(), excludedDir);
+            for (Path includedFile : includedFiles) {
+                collectFiles(includedFile, files, excludedDir);
+            }
+        }
+    }
+
+    /**
+     * Captures the content hashes of all rendered files in the given directory.
+     *
+     * @param outputDir The directory containing the rendered files.
+     *
+     * @return A map with the path of each rendered file as key and its content hash as value.
+     *
+     * @throws IOException In case a file could not be read.
+     */
+    static Map<Path, String> snapshot(Path outputDir) throws IOException {
+        Map<Path, String> snapshot = new HashMap<>();
+        if (!Files.isDirectory(outputDir)) {
+            return snapshot;
+        }
+        try (Stream<Path> files = Files.list(outputDir)) {
+            for (Path file : files.filter(WorkspaceFingerprint::isOutputFile).toList()) {
+                snapshot.put(file, HexFormat.of().formatHex(newDigest().digest(Files.readAllBytes(file))));
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Builds the fingerprint of the files rendered for a workspace.
+     *
+     * @param files The rendered files.
+     * @param outputDir The directory of the rendered files.
+     *
+     * @return The fingerprint, one line per file in the format {@code <relative path>=<content hash>}.
+     *
+     * @throws IOException In case a file could not be read.
+     */
+    static String ofOutput(Collection<Path> files, Path outputDir) throws IOException {
+        StringBuilder fingerprint = new StringBuilder();
+        for (Path file : files.stream().map(f -> outputDir.relativize(f.toAbsolutePath())).sorted().toList()) {
+            Path absoluteFile = outputDir.resolve(file);
+            String hash = Files.isRegularFile(absoluteFile) ? HexFormat.of().formatHex(newDigest().digest(Files.readAllBytes(absoluteFile))) : "";
+            fingerprint.append(file.toString().replace('\\', '/')).append('=').append(hash).append('\n');
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * @param outputFingerprint A fingerprint built by {@link #ofOutput(Collection, Path)}.
+     * @param outputDir The directory of the rendered files.
+     *
+     * @return Whether all rendered files still exist with the same content.
+     *
+     * @throws IOException In case a file could not be read.
+     */
+    static boolean isCurrentOutput(String outputFingerprint, Path outputDir) throws IOException {
+        List<Path> files = outputFingerprint.lines()
+                .filter(line -> line.lastIndexOf('=') > 0)
+                .map(line -> outputDir.resolve(line.substring(0, line.lastIndexOf('='))))
+                .toList();
+        return Files.isDirectory(outputDir) && ofOutput(files, outputDir).equals(outputFingerprint);
+    }
+
+    private static boolean isOutputFile(Path file) {
+        String fileName = file.getFileName().toString();
+        return Files.isRegularFile(file) && OUTPUT_EXTENSIONS.stream().anyMatch(fileName::endsWith);
+    }
+
+    /*
+     * The file itself if it is no directory, even if it does not exist
+     */
+    private static List<Path> listFiles(Path dir, Path excludedDir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of(dir);
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !file.startsWith(excludedDir))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package de.materna.structurizr.renderer.maven;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkspaceFingerprintTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path workspaceDir;
+
+    private Path workspaceDslPath;
+
+    private Path outputDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.workspaceDir = Files.createDirectories(this.tempDir.resolve("workspaces").resolve("system"));
+        this.workspaceDslPath = this.workspaceDir.resolve("workspace.dsl");
+        this.outputDir = this.workspaceDir.resolve("out");
+        Files.createDirectories(this.tempDir.resolve("shared"));
+        Files.writeString(this.tempDir.resolve("shared").resolve("people.dsl"), "user = person \"User\"\n");
+        Files.writeString(this.workspaceDir.resolve("model.dsl"), "!include ../../shared/people.dsl\n");
+        Files.writeString(this.workspaceDslPath, """
+                workspace {
+                    model {
+                        !include "model.dsl"
+                        !include https://example.com/remote.dsl
+                    }
+                }
+                """);
+    }
+
+    @Test
+    void changesWithNestedIncludeOutsideWorkspaceDirectory() throws Exception {
+        String fingerprint = fingerprint();
+
+        Files.writeString(this.tempDir.resolve("shared").resolve("people.dsl"), "admin = person \"Admin\"\n");
+
+        assertNotEquals(fingerprint, fingerprint());
+    }
+
+    @Test
+    void ignoresFilesNotIncluded() throws Exception {
+        String fingerprint = fingerprint();
+
+        Files.writeString(this.workspaceDir.resolve("notes.md"), "# Notes");
+        Files.writeString(this.tempDir.resolve("shared").resolve("other.dsl"), "other = person \"Other\"\n");
+
+        assertEquals(fingerprint, fingerprint());
+    }
+
+    @Test
+    void ignoresRenderedFiles() throws Exception {
+        Files.writeString(this.workspaceDslPath, "workspace {\n    !include .\n}\n");
+        String fingerprint = fingerprint();
+
+        Files.createDirectories(this.outputDir);
+        Files.writeString(this.outputDir.resolve("context.svg"), "<svg/>");
+
+        assertEquals(fingerprint, fingerprint());
+    }
+
+    @Test
+    void takesDirectoryOfIncludeWithConstantIntoAccount() throws Exception {
+        Files.writeString(this.workspaceDslPath, "workspace {\n    !include ${MODEL}\n}\n");
+        String fingerprint = fingerprint();
+
+        Files.writeString(this.workspaceDir.resolve("model.dsl"), "!include ../../shared/changed.dsl\n");
+
+        assertNotEquals(fingerprint, fingerprint());
+    }
+
+    @Test
+    void changesWithExtendedWorkspace() throws Exception {
+        Files.writeString(this.tempDir.resolve("shared").resolve("base.dsl"), "workspace {\n}\n");
+        Files.writeString(this.workspaceDslPath, "workspace extends ../../shared/base.dsl{\n}\n");
+        String fingerprint = fingerprint();
+
+        Files.writeString(this.tempDir.resolve("shared").resolve("base.dsl"), "workspace \"Base\" {\n}\n");
+
+        assertNotEquals(fingerprint, fingerprint());
+    }
+
+    @Test
+    void changesWithRenderingConfiguration() throws Exception {
+        assertNotEquals(fingerprint(), WorkspaceFingerprint.of(this.workspaceDslPath, null, "renderer=PLANTUML_C4", this.outputDir));
+    }
+
+    @Test
+    void detectsChangedAndDeletedOutput() throws Exception {
+        Files.createDirectories(this.outputDir);
+        Path diagram = Files.writeString(this.outputDir.resolve("context.svg"), "<svg/>");
+        String outputFingerprint = WorkspaceFingerprint.ofOutput(List.of(diagram), this.outputDir);
+        assertTrue(WorkspaceFingerprint.isCurrentOutput(outputFingerprint, this.outputDir));
+
+        Files.writeString(diagram, "<svg>changed</svg>");
+        assertFalse(WorkspaceFingerprint.isCurrentOutput(outputFingerprint, this.outputDir));
+
+        Files.delete(diagram);
+        assertFalse(WorkspaceFingerprint.isCurrentOutput(outputFingerprint, this.outputDir));
+    }
+
+    private String fingerprint() throws Exception {
+        return WorkspaceFingerprint.of(this.workspaceDslPath, null, "renderer=STRUCTURIZR", this.outputDir);
+    }
+
+}
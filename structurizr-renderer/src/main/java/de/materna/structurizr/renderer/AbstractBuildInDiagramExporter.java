@@ -10,8 +10,6 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -40,22 +38,43 @@ public abstract class AbstractBuildInDiagramExporter extends AbstractDiagramExpo
         if (view != null) {
             Optional<Diagram> diagram = diagrams.stream().filter(d -> d.getKey().equals(viewKey)).findFirst();
             if (diagram.isPresent()) {
-                String sourceFileName = viewKey + this.fileExtension;
                 log.info("Rendering diagram for view {}", viewKey);
-                Path sourcePath = outputDir.toPath().resolve(sourceFileName);
-                try (OutputStream os = Files.newOutputStream(sourcePath)) {
-                    try (OutputStreamWriter outputStreamWriter = new OutputStreamWriter(os, StandardCharsets.UTF_8)) {
-                        outputStreamWriter.write(diagram.get().getDefinition());
-                    }
+                // named after the renderer as well, as several renderers may render the same view into one directory
+                Path sourcePath = constructOutputFilePath(outputDir, viewKey, this.fileExtension);
+                try {
+                    OutputFileUtil.write(sourcePath, diagram.get().getDefinition().getBytes(StandardCharsets.UTF_8));
                 } catch (IOException e) {
                     throw new StructurizrRenderingException("Failed to write file during rendering of diagram", e);
                 }
-                return render(diagram.get(), constructOutputFilePath(outputDir, viewKey));
+                Path outputFilePath = render(diagram.get(), constructOutputFilePath(outputDir, viewKey));
+                markAsRendered(workspacePath, workspace, workspaceJsonPath, viewKey, outputFilePath, diagram.get().getDefinition());
+                return outputFilePath;
             }
         }
         throw new StructurizrRenderingException("No view with key " + viewKey);
     }
 
+    /*
+     * Writes the hash file and keeps the diagram together with its definition in memory, so that the view is
+     * up-to-date for later exports
+     */
+    private void markAsRendered(Path workspacePath, Workspace workspace, Path workspaceJsonPath, String viewKey, Path outputFilePath, String definition) throws StructurizrRenderingException {
+        String hash = buildHash(workspacePath, workspaceJsonPath, viewKey);
+        String themesFingerprint = buildThemesFingerprint(workspace);
+        try {
+            String svg = Files.readString(outputFilePath, StandardCharsets.UTF_8);
+            writeFile(svg, outputFilePath, constructOutputHashFilePath(outputFilePath, hash), themesFingerprint);
+            this.cache.put(viewKey, new RenderedView(hash, themesFingerprint, svg, definition));
+        } catch (IOException e) {
+            throw new StructurizrRenderingException("Failed to write hash file during rendering of diagram", e);
+        }
+    }
+
+    @Override
+    protected String getSourceFileExtension() {
+        return this.fileExtension;
+    }
+
     protected abstract DiagramExporter getExporter();
 
     protected abstract Path render(Diagram diagram, Path outputFilePath) throws StructurizrRenderingException;
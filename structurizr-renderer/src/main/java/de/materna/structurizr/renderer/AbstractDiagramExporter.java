@@ -0,0 +1,388 @@
+package de.materna.structurizr.renderer;
+
+import com.structurizr.Workspace;
+import com.structurizr.view.View;
+import de.materna.structurizr.renderer.theme.ThemeCache;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.jspecify.annotations.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Base interface for different export strategies.
+ *
+ * @author Stephan Pirnbaum
+ */
+@Slf4j
+public abstract class AbstractDiagramExporter implements AutoCloseable {
+
+    /**
+     * Mapping from view key to the rendered diagram
+     */
+    protected final Map<String, RenderedView> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Renderings in progress, shared by all exporters so that concurrent requests for the same diagram render it once
+     */
+    private static final Map<String, CompletableFuture<Path>> PENDING_VIEWS = new ConcurrentHashMap<>();
+
+    private static final Pattern HASH_FILE_SUFFIX = Pattern.compile("\\.[0-9a-f]{64}");
+
+    /**
+     * Cache for the themes referenced by workspaces
+     */
+    @Getter(AccessLevel.PROTECTED)
+    @Setter
+    @NonNull
+    private ThemeCache themeCache = ThemeCache.createDefault();
+
+    public final Map<String, Path> export(Path workspacePath, Path workspaceJsonPath, File outputDir, String viewKey) throws StructurizrRenderingException {
+        return export(workspacePath, workspaceJsonPath, outputDir, viewKey, Runnable::run);
+    }
+
+    /**
+     * Export the given workspace, rendering views that are not up-to-date using the given executor.
+     *
+     * @param workspacePath The path of the workspace DSL or JSON file. If null, the workspace JSON file is rendered without parsing any DSL.
+     * @param workspaceJsonPath The workspace including layout information.
+     * @param outputDir The output directory.
+     * @param viewKey The key of the view to render or null, if all views should be rendered.
+     * @param executor The executor to render views on. Views of exporters not supporting parallel rendering are rendered one after another.
+     *
+     * @return A map of all generated files with the view key as key and the path to it as value.
+     *
+     * @throws StructurizrRenderingException In case the workspace could not be rendered.
+     */
+    public final Map<String, Path> export(Path workspacePath, Path workspaceJsonPath, File outputDir, String viewKey, Executor executor) throws StructurizrRenderingException {
+        Path resolvedWorkspacePath = WorkspaceLoader.resolveWorkspacePath(workspacePath, workspaceJsonPath);
+        return await(exportAsync(resolvedWorkspacePath, WorkspaceLoader.resolveWorkspaceJsonPath(resolvedWorkspacePath, workspaceJsonPath), outputDir, viewKey, executor,
+                new WorkspaceLoader(resolvedWorkspacePath, this.themeCache)));
+    }
+
+    /**
+     * Export the given workspace without waiting for the views to be rendered. Up-to-date checks and parsing the
+     * workspace happen on the calling thread, rendering of outdated views on the given executor.
+     *
+     * @param workspacePath The path of the workspace file.
+     * @param workspaceJsonPath The workspace including layout information.
+     * @param outputDir The output directory.
+     * @param viewKey The key of the view to render or null, if all views should be rendered.
+     * @param executor The executor to render views on. Views of exporters not supporting parallel rendering are rendered one after another.
+     * @param workspaceLoader The loader providing the parsed workspace, possibly shared with other exporters.
+     *
+     * @return A future completing with a map of all generated files with the view key as key and the path to it as value.
+     *
+     * @throws StructurizrRenderingException In case the workspace could not be parsed.
+     */
+    final CompletableFuture<Map<String, Path>> exportAsync(Path workspacePath, Path workspaceJsonPath, File outputDir, String viewKey, Executor executor,
+                                                           WorkspaceLoader workspaceLoader) throws StructurizrRenderingException {
+        String hash;
+        Path outputFile;
+        Path outputHashFile;
+        AbstractMap.SimpleEntry<String, Path> cachedEntry;
+        if (StringUtils.isNotEmpty(viewKey)) {
+            hash = buildHash(workspacePath, workspaceJsonPath, viewKey);
+            outputFile = constructOutputFilePath(outputDir, viewKey);
+            outputHashFile = constructOutputHashFilePath(outputFile, hash);
+
+            /*
+             * Always parsing the workspace is expensive especially when being run from the IntelliJ AsciiDoctor Plugin
+             * Therefore, if a specific view key is given, check the in-memory cache first
+             */
+            cachedEntry = getFromCache(outputFile, outputHashFile, viewKey, hash);
+            if (cachedEntry != null) {
+                return CompletableFuture.completedFuture(Map.ofEntries(cachedEntry));
+            }
+
+            // no need to parse the workspace if the view is already being rendered for another request
+            CompletableFuture<Path> runningView = PENDING_VIEWS.get(outputHashFile.toAbsolutePath().toString());
+            if (runningView != null) {
+                log.debug("Joining pending rendering of view {}", viewKey);
+                return runningView.thenApply(path -> Map.of(viewKey, path));
+            }
+        }
+
+        Map<String, Path> result = new ConcurrentHashMap<>();
+
+        try {
+            Files.createDirectories(outputDir.toPath());
+        } catch (IOException e) {
+            throw new StructurizrRenderingException("Failed to create output directory", e);
+        }
+
+        Workspace workspace = workspaceLoader.load();
+
+        Set<String> viewKeys = viewKey != null ?
+                Set.of(viewKey) :
+                workspace.getViews().getViews().stream().map(View::getKey).collect(Collectors.toSet());
+
+        List<CompletableFuture<Void>> pendingViews = new ArrayList<>();
+        // views of exporters not supporting parallel rendering are chained, each one starting after its predecessor
+        CompletableFuture<Void> sequentialViews = CompletableFuture.completedFuture(null);
+        for (String key : viewKeys) {
+            outputFile = constructOutputFilePath(outputDir, key);
+            hash = buildHash(workspacePath, workspaceJsonPath, key);
+            outputHashFile = constructOutputHashFilePath(outputFile, hash);
+
+            cachedEntry = getFromCache(outputFile, outputHashFile, key, hash);
+            if (cachedEntry != null) {
+                result.put(cachedEntry.getKey(), cachedEntry.getValue());
+                continue;
+            }
+
+            // the hash file identifies workspace version, renderer, view and output location of the diagram
+            String renderingKey = outputHashFile.toAbsolutePath().toString();
+            CompletableFuture<Path> pendingView = new CompletableFuture<>();
+            CompletableFuture<Path> runningView = PENDING_VIEWS.putIfAbsent(renderingKey, pendingView);
+            if (runningView != null) {
+                log.debug("Joining pending rendering of view {}", key);
+                pendingViews.add(runningView.thenAccept(path -> result.put(key, path)));
+                continue;
+            }
+
+            Path viewOutputFile = outputFile;
+            Path viewOutputHashFile = outputHashFile;
+            String viewHash = hash;
+            Runnable renderView = () -> {
+                try {
+                    // a previously rendered view of this export may have rendered this one as well
+                    AbstractMap.SimpleEntry<String, Path> renderedEntry = getFromCache(viewOutputFile, viewOutputHashFile, key, viewHash);
+                    pendingView.complete(renderedEntry != null ?
+                            renderedEntry.getValue() :
+                            export(workspacePath, workspace, workspaceJsonPath, outputDir, key));
+                } catch (StructurizrRenderingException | RuntimeException e) {
+                    pendingView.completeExceptionally(e);
+                } finally {
+                    PENDING_VIEWS.remove(renderingKey, pendingView);
+                }
+            };
+            CompletableFuture<Void> scheduledView;
+            try {
+                scheduledView = isParallelExportSupported() ?
+                        CompletableFuture.runAsync(renderView, executor) :
+                        sequentialViews.thenRunAsync(renderView, executor);
+            } catch (RejectedExecutionException e) {
+                scheduledView = CompletableFuture.failedFuture(e);
+            }
+            // the rendering itself never fails, but it may not run at all if rejected by the executor
+            scheduledView.whenComplete((ignored, e) -> {
+                if (e != null) {
+                    pendingView.completeExceptionally(e);
+                    PENDING_VIEWS.remove(renderingKey, pendingView);
+                }
+            });
+            if (!isParallelExportSupported()) {
+                sequentialViews = scheduledView;
+            }
+            pendingViews.add(pendingView.thenAccept(path -> result.put(key, path)));
+        }
+        return CompletableFuture.allOf(pendingViews.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    log.info("Export completed. SVG files in: {}", outputDir.getAbsolutePath());
+                    return result;
+                });
+    }
+
+    /**
+     * Waits for the given future, unwrapping the cause of a failure.
+     *
+     * @param future The future to wait for.
+     *
+     * @return The result of the future.
+     *
+     * @throws StructurizrRenderingException In case the future completed exceptionally.
+     */
+    static <T> T await(CompletableFuture<T> future) throws StructurizrRenderingException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof StructurizrRenderingException renderingException) {
+                throw renderingException;
+            }
+            throw new StructurizrRenderingException("Failed to render view", e.getCause());
+        }
+    }
+
+    /**
+     * Writes the rendered diagram together with its hash file. The hash file contains the fingerprint of the themes
+     * the diagram was rendered with, so that a change of one of them invalidates the diagram. Hash files of previous
+     * versions of the diagram are removed.
+     *
+     * @param svg The rendered diagram.
+     * @param outputFile The file to write the diagram to.
+     * @param outputHashFile The hash file of the diagram.
+     * @param themesFingerprint The fingerprint of the themes of the workspace, see {@link #buildThemesFingerprint(Workspace)}.
+     *
+     * @throws IOException In case the files could not be written.
+     */
+    protected void writeFile(String svg, Path outputFile, Path outputHashFile, String themesFingerprint) throws IOException {
+        OutputFileUtil.write(outputFile, svg.getBytes(StandardCharsets.UTF_8));
+        OutputFileUtil.write(outputHashFile, themesFingerprint.getBytes(StandardCharsets.UTF_8));
+        deleteOutdatedHashFiles(outputFile, outputHashFile);
+    }
+
+    private void deleteOutdatedHashFiles(Path outputFile, Path outputHashFile) throws IOException {
+        try (DirectoryStream<Path> hashFiles = Files.newDirectoryStream(outputFile.getParent(), outputFile.getFileName() + ".*")) {
+            for (Path hashFile : hashFiles) {
+                if (HASH_FILE_SUFFIX.matcher(hashFile.getFileName().toString().substring(outputFile.getFileName().toString().length())).matches()
+                        && !hashFile.getFileName().equals(outputHashFile.getFileName())) {
+                    Files.deleteIfExists(hashFile);
+                }
+            }
+        }
+    }
+
+    private AbstractMap.SimpleEntry<String, Path> getFromCache(Path outputFile, Path outputHashFile, String viewKey, String hash) throws StructurizrRenderingException {
+        if (StringUtils.isNotEmpty(viewKey)) {
+            if (outputFile.toFile().exists() && isRenderedWithCurrentThemes(outputHashFile)) {
+                // current rendered version is up-to-date
+                log.debug("View with key {} already saved. No action required.", viewKey);
+                return new AbstractMap.SimpleEntry<>(viewKey, outputFile);
+            } else if (this.cache.containsKey(viewKey)) {
+                RenderedView renderedView = this.cache.get(viewKey);
+                if (renderedView.hash().equals(hash) && isCurrent(renderedView.themesFingerprint())) {
+                    // we need to write the value as a file
+                    try {
+                        if (renderedView.source() != null) {
+                            OutputFileUtil.write(constructOutputFilePath(outputFile.getParent().toFile(), viewKey, getSourceFileExtension()),
+                                    renderedView.source().getBytes(StandardCharsets.UTF_8));
+                        }
+                        writeFile(renderedView.svg(), outputFile, outputHashFile, renderedView.themesFingerprint());
+                        log.debug("In-memory cache hit for view {}", viewKey);
+                        log.info("Exported: {}", outputFile.toAbsolutePath());
+                        return new AbstractMap.SimpleEntry<>(viewKey, outputFile);
+                    } catch (IOException e) {
+                        throw new StructurizrRenderingException("Unable to write cached diagram for view: " + viewKey, e);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean isRenderedWithCurrentThemes(Path outputHashFile) {
+        try {
+            return isCurrent(Files.readString(outputHashFile, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // not rendered yet
+            return false;
+        }
+    }
+
+    protected final String buildHash(Path workspacePath, Path workspaceJsonPath, String viewKey) {
+        return HashingUtil.buildHash(workspacePath, workspaceJsonPath, viewKey, getRendererString());
+    }
+
+    /**
+     * @param workspace The workspace.
+     *
+     * @return The fingerprint of the themes referenced by the workspace, see {@link ThemeCache#fingerprint(Workspace)}.
+     * Exporters may add further external resources their diagrams depend on, see {@link #isCurrent(String)}.
+     */
+    protected String buildThemesFingerprint(Workspace workspace) {
+        return this.themeCache.fingerprint(workspace);
+    }
+
+    /**
+     * @param themesFingerprint A fingerprint built by {@link #buildThemesFingerprint(Workspace)}.
+     *
+     * @return Whether a diagram rendered with the fingerprint is still up-to-date.
+     */
+    protected boolean isCurrent(String themesFingerprint) {
+        return this.themeCache.isCurrent(themesFingerprint);
+    }
+
+    protected Path constructOutputHashFilePath(Path outputFilePath, String hash) {
+
+        return outputFilePath.resolveSibling(outputFilePath.getFileName().toString() + "." + hash);
+    }
+
+    /**
+     * Export the given workspace to the specified output directory.
+     *
+     * @param workspacePath The path of the workspace file.
+     * @param workspace The workspace to export.
+     * @param workspaceJsonPath The workspace including layout information.
+     * @param outputDir The output directory.
+     * @param viewKey The key of the view to render or null, if all views should be rendered.
+     *
+     * @return A map of all generated files with the file name as key and the path to it as value.
+     *
+     * @throws StructurizrRenderingException In case the workspace could not be rendered.
+     */
+    protected abstract Path export(Path workspacePath, Workspace workspace, Path workspaceJsonPath, File outputDir, String viewKey) throws StructurizrRenderingException;
+
+    protected abstract String getRendererString();
+
+    /**
+     * Releases the resources held by this exporter, e.g. threads or browsers. Views can not be exported afterwards.
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * @return Whether views of a single workspace can be rendered concurrently by this exporter.
+     */
+    protected boolean isParallelExportSupported() {
+        return true;
+    }
+
+    /**
+     * @return The extension of the diagram definition written next to the rendered diagram, including the dot, or null
+     * if the exporter does not write one.
+     */
+    protected String getSourceFileExtension() {
+        return null;
+    }
+
+    protected final Path constructOutputFilePath(File outputDir, String viewKey) {
+        return constructOutputFilePath(outputDir, viewKey, ".svg");
+    }
+
+    /**
+     * @param outputDir The output directory.
+     * @param viewKey The key of the view.
+     * @param fileExtension The extension of the file, including the dot.
+     *
+     * @return The path of a file generated for the view by this exporter, unique per view and renderer.
+     */
+    protected final Path constructOutputFilePath(File outputDir, String viewKey, String fileExtension) {
+        final String fileName = (viewKey + "_" + getRendererString()).replaceAll("[^a-zA-Z0-9._-]", "_");
+
+        return outputDir.toPath().resolve(fileName + fileExtension);
+    }
+
+    /**
+     * A rendered diagram.
+     *
+     * @param hash The hash of workspace, view and renderer the diagram was rendered for.
+     * @param themesFingerprint The fingerprint of the themes the diagram was rendered with.
+     * @param svg The diagram.
+     * @param source The definition of the diagram, e.g. its PlantUML source, or null if the exporter does not write one.
+     */
+    public record RenderedView(String hash, String themesFingerprint, String svg, String source) {
+    }
+
+}
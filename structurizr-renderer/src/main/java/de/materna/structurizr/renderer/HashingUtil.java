@@ -23,10 +23,7 @@ public final class HashingUtil {
             md.update(normalize("viewKey=" + viewKey));
 
             // Workspace mtime
-            long wsMtime = 0;
-            try { wsMtime = Files.getLastModifiedTime(workspacePath).toMillis(); } catch (Exception ignore) {}
-            md.update(normalize("wsPath=" + workspacePath.toAbsolutePath()));
-            md.update(normalize("wsMtime=" + wsMtime));
+            updateWorkspace(md, workspacePath);
 
             // Layout mtime
             if (workspaceJsonPath != null) {
@@ -38,12 +35,39 @@ public final class HashingUtil {
         });
     }
 
+    /**
+     * Builds a fingerprint of a workspace independent of any view or renderer, e.g. to identify parses of the same
+     * version of a workspace. The context distinguishes otherwise identical workspaces, e.g. loaded with different
+     * theme caches.
+     */
+    public static String buildWorkspaceHash(Path workspacePath, String context) {
+        return HashingUtil.sha256HexConcat(md -> {
+            md.update(normalize("context=" + context));
+            updateWorkspace(md, workspacePath);
+        });
+    }
+
+    public static String buildHash(String content) {
+        return HashingUtil.sha256HexConcat(md -> md.update(normalize(content)));
+    }
+
+    public static String buildHash(byte[] content) {
+        return HashingUtil.sha256HexConcat(md -> md.update(content));
+    }
+
     public static byte[] normalize(String text) {
         if (text == null) return new byte[0];
         // Nur Zeilenenden vereinheitlichen; keine aggressive Unicode-Normalisierung
         return text.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8);
     }
 
+    private static void updateWorkspace(MessageDigest md, Path workspacePath) {
+        long wsMtime = 0;
+        try { wsMtime = Files.getLastModifiedTime(workspacePath).toMillis(); } catch (Exception ignore) {}
+        md.update(normalize("wsPath=" + workspacePath.toAbsolutePath()));
+        md.update(normalize("wsMtime=" + wsMtime));
+    }
+
     private static String sha256HexConcat(Consumer<MessageDigest> feeder) {
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-256");
@@ -0,0 +1,144 @@
+package de.materna.structurizr.renderer;
+
+import com.google.common.util.concurrent.Striped;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Writes rendered files so that multiple threads and processes can safely share an output directory.
+ * Content is written to a temporary file and moved into place atomically while holding a lock for the target directory,
+ * so readers never see a truncated file. Writes of unchanged content are skipped to keep modification times stable
+ * and avoid triggering downstream rebuilds. The lock is a hidden file inside the target directory, so that all processes
+ * writing to it share the lock, regardless of their user or temporary directory. It is made writable for all users
+ * where supported. If it can not be opened, e.g. as it was created by another user, writes to the directory are only
+ * synchronized within the JVM.
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class OutputFileUtil {
+
+    /**
+     * Name of the lock file created in every directory written to
+     */
+    public static final String LOCK_FILE_NAME = ".structurizr-renderer.lock";
+
+    private static final Set<PosixFilePermission> LOCK_FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-rw-rw-");
+
+    // file locks are held by the JVM, i.e. threads of the same process need to be synchronized separately
+    private static final Striped<Lock> LOCKS = Striped.lazyWeakLock(64);
+
+    // directories whose lock file could not be opened, to warn only once per directory
+    private static final Set<Path> UNLOCKED_DIRS = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Writes the content to the given file unless it already contains exactly this content.
+     *
+     * @param file The file to write.
+     * @param content The content to write.
+     *
+     * @return Whether the file was written.
+     *
+     * @throws IOException In case the file could not be written.
+     */
+    public static boolean write(Path file, byte[] content) throws IOException {
+        Path absoluteFile = file.toAbsolutePath().normalize();
+        Path dir = absoluteFile.getParent();
+        Files.createDirectories(dir);
+        Path lockFile = dir.resolve(LOCK_FILE_NAME);
+
+        Lock lock = LOCKS.get(lockFile);
+        lock.lock();
+        try {
+            FileChannel channel = openLockFile(lockFile);
+            if (channel == null) {
+                return writeIfChanged(absoluteFile, content);
+            }
+            try (channel; FileLock ignored = channel.lock()) {
+                return writeIfChanged(absoluteFile, content);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * The lock file or null, if it can not be opened for writing
+     */
+    private static FileChannel openLockFile(Path lockFile) throws IOException {
+        try {
+            try {
+                FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                grantWriteAccess(lockFile);
+                return channel;
+            } catch (FileAlreadyExistsException e) {
+                return FileChannel.open(lockFile, StandardOpenOption.WRITE);
+            }
+        } catch (AccessDeniedException e) {
+            if (UNLOCKED_DIRS.add(lockFile.getParent())) {
+                log.warn("Unable to open lock file {}. Writes of other processes to this directory are not synchronized.", lockFile);
+            }
+            return null;
+        }
+    }
+
+    // the umask of the creating process usually prevents other users from opening the lock file for writing
+    private static void grantWriteAccess(Path lockFile) {
+        try {
+            Files.setPosixFilePermissions(lockFile, LOCK_FILE_PERMISSIONS);
+        } catch (UnsupportedOperationException | IOException e) {
+            log.debug("Unable to grant write access to lock file {} for all users", lockFile, e);
+        }
+    }
+
+    private static boolean writeIfChanged(Path file, byte[] content) throws IOException {
+        if (hasContent(file, content)) {
+            log.debug("Content of {} unchanged. Skipping write.", file);
+            return false;
+        }
+
+        // not using Files#createTempFile as it restricts the permissions of the file to the owner
+        Path tempFile = file.resolveSibling("." + file.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.write(tempFile, content, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            move(tempFile, file);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return true;
+    }
+
+    private static boolean hasContent(Path file, byte[] content) throws IOException {
+        return Files.isRegularFile(file)
+                && Files.size(file) == content.length
+                && Arrays.equals(Files.readAllBytes(file), content);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            log.debug("Atomic move not supported for {}. Falling back to regular move.", target);
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+}
@@ -0,0 +1,14 @@
+package de.materna.structurizr.renderer;
+
+import de.materna.structurizr.renderer.plantuml.PlantumlLayoutEngine;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A renderer together with its configuration, identifying one output format of a view.
+ *
+ * @param renderer The renderer.
+ * @param plantumlLayoutEngine The layout engine, only set for the {@link Renderer#PLANTUML_C4} renderer.
+ */
+public record RenderTarget(@NonNull Renderer renderer, @Nullable PlantumlLayoutEngine plantumlLayoutEngine) {
+}
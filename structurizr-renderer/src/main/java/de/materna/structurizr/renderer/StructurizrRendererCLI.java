@@ -0,0 +1,69 @@
+package de.materna.structurizr.renderer;
+
+import de.materna.structurizr.renderer.plantuml.PlantumlLayoutEngine;
+import de.materna.structurizr.renderer.theme.ThemeCache;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import picocli.CommandLine;
+
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * CLI application of the structurizr renderer.
+ *
+ * @author Stephan Pirnbaum
+ */
+@Slf4j
+@CommandLine.Command(name = "render", description = "Renders the views of a given workspace to SVG files")
+public class StructurizrRendererCLI implements Runnable {
+
+    @CommandLine.Option(names = {"-w", "--workspace"}, description = "Path to the workspace DSL or JSON file.")
+    private Path workspaceDslPath;
+
+    @CommandLine.Option(names = {"-j", "--workspaceJson"}, description = "Path to the manual layout JSON file. Rendered without parsing any DSL if no workspace is given.")
+    private Path workspaceJsonPath;
+
+    @CommandLine.Option(names = {"-o", "--outputDir"}, required = true, description = "Path to write the output to.")
+    private Path outputDir;
+
+    @CommandLine.Option(names = {"-v", "--viewKey"}, required = true, description = "The key of the view to render.")
+    private String viewKey;
+
+    @CommandLine.Option(names = {"-r", "--renderer"}, split = ",", description = "The renderers to use, rendering the view once per renderer. Defaults to STRUCTURIZR.")
+    private Set<Renderer> renderers = new LinkedHashSet<>();
+
+    @CommandLine.Option(names = {"-e", "--plantumlLayoutEngine"}, split = ",", description = "The layout engines to use for the PLANTUML-C4 renderer, rendering the view once per engine. Defaults to GraphViz.")
+    private Set<PlantumlLayoutEngine> plantumlLayoutEngines = new LinkedHashSet<>();
+
+    @CommandLine.Option(names = {"-p", "--playwrightWsEndpoint"}, description = "The Playwright URI to connect to if a running installation should be used.")
+    private String playwrightWsEndpoint;
+
+    @CommandLine.Option(names = {"-t", "--themeCacheDir"}, description = "Path to the directory to cache themes in. Defaults to ~/.structurizr-renderer/themes.")
+    private Path themeCacheDir;
+
+    @CommandLine.Option(names = {"--offline"}, description = "Resolve themes from the theme cache only, without network access.")
+    private boolean offline;
+
+    public static void main(String[] args) {
+        CommandLine.run(new StructurizrRendererCLI(), args);
+    }
+
+    @SneakyThrows
+    @Override
+    public void run() {
+        ThemeCache themeCache = new ThemeCache(this.themeCacheDir != null ? this.themeCacheDir : ThemeCache.defaultCacheDir(), ThemeCache.DEFAULT_TTL, this.offline);
+        // renders the requested renderers and layout engines concurrently
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        // closing the renderer stops rendering further views in the background before exiting
+        try (WorkspaceRenderer workspaceRenderer = new WorkspaceRenderer(executor, themeCache)) {
+            workspaceRenderer.render(this.workspaceDslPath, this.workspaceJsonPath, this.outputDir, this.viewKey, this.renderers, this.plantumlLayoutEngines, this.playwrightWsEndpoint);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
\ No newline at end of file
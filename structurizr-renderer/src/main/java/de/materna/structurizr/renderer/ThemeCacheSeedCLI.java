@@ -0,0 +1,51 @@
+package de.materna.structurizr.renderer;
+
+import com.structurizr.util.Url;
+import de.materna.structurizr.renderer.theme.ThemeCache;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import picocli.CommandLine;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * CLI application to seed the theme cache, e.g. to prepare it for build agents without network access.
+ */
+@Slf4j
+@CommandLine.Command(name = "seed-themes", description = "Fetches themes into the theme cache for offline rendering")
+public class ThemeCacheSeedCLI implements Runnable {
+
+    @CommandLine.Option(names = {"-t", "--themeCacheDir"}, description = "Path to the directory to cache themes in. Defaults to ~/.structurizr-renderer/themes.")
+    private Path themeCacheDir;
+
+    @CommandLine.Option(names = {"-w", "--workspace"}, description = "Path to a workspace DSL or JSON file whose themes should be cached. Can be specified multiple times.")
+    private List<Path> workspaceDslPaths = new ArrayList<>();
+
+    @CommandLine.Parameters(description = "URLs of further themes to cache.")
+    private List<String> themeUrls = new ArrayList<>();
+
+    public static void main(String[] args) {
+        CommandLine.run(new ThemeCacheSeedCLI(), args);
+    }
+
+    @SneakyThrows
+    @Override
+    public void run() {
+        Set<String> urls = new LinkedHashSet<>(this.themeUrls);
+        for (Path workspaceDslPath : this.workspaceDslPaths) {
+            Arrays.stream(WorkspaceLoader.read(workspaceDslPath).getViews().getConfiguration().getThemes())
+                    .filter(Url::isUrl)
+                    .forEach(urls::add);
+        }
+
+        ThemeCache themeCache = new ThemeCache(this.themeCacheDir != null ? this.themeCacheDir : ThemeCache.defaultCacheDir(), ThemeCache.DEFAULT_TTL, false);
+        themeCache.seed(urls);
+        log.info("Seeded {} theme(s) into {}", urls.size(), themeCache.getCacheDir());
+    }
+
+}
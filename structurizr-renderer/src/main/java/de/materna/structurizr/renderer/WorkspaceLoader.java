@@ -0,0 +1,148 @@
+package de.materna.structurizr.renderer;
+
+import com.structurizr.Workspace;
+import com.structurizr.dsl.StructurizrDslParser;
+import com.structurizr.dsl.StructurizrDslParserException;
+import com.structurizr.util.WorkspaceUtils;
+import de.materna.structurizr.renderer.theme.ThemeCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lazily parses a workspace on first access and shares the result, so that several exporters rendering the same
+ * workspace need a single parse only and exporters with up-to-date diagrams do not parse at all. Concurrent loaders of
+ * the same version of a workspace join the parse already in progress instead of parsing again. Besides the DSL, workspaces
+ * can be given as JSON.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class WorkspaceLoader {
+
+    /**
+     * Parses in progress by workspace fingerprint
+     */
+    private static final Map<String, CompletableFuture<Workspace>> PENDING_PARSES = new ConcurrentHashMap<>();
+
+    private final Path workspacePath;
+
+    private final ThemeCache themeCache;
+
+    private Workspace workspace;
+
+    synchronized Workspace load() throws StructurizrRenderingException {
+        if (this.workspace == null) {
+            this.workspace = parseOrJoinPending();
+        }
+        return this.workspace;
+    }
+
+    private Workspace parseOrJoinPending() throws StructurizrRenderingException {
+        String fingerprint = HashingUtil.buildWorkspaceHash(this.workspacePath,
+                "themeCache=" + this.themeCache.getCacheDir().toAbsolutePath() + ";offline=" + this.themeCache.isOffline());
+        CompletableFuture<Workspace> pendingParse = new CompletableFuture<>();
+        CompletableFuture<Workspace> runningParse = PENDING_PARSES.putIfAbsent(fingerprint, pendingParse);
+        if (runningParse != null) {
+            log.debug("Joining pending parse of {}", this.workspacePath);
+            try {
+                return runningParse.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof StructurizrRenderingException renderingException) {
+                    throw renderingException;
+                }
+                throw new StructurizrRenderingException("Failed to process workspace dsl", e.getCause());
+            }
+        }
+
+        try {
+            Workspace parsedWorkspace = parseWorkspace();
+            pendingParse.complete(parsedWorkspace);
+            return parsedWorkspace;
+        } catch (StructurizrRenderingException | RuntimeException e) {
+            pendingParse.completeExceptionally(e);
+            throw e;
+        } finally {
+            // only deduplicates concurrent parses, later loads parse again
+            PENDING_PARSES.remove(fingerprint, pendingParse);
+        }
+    }
+
+    private Workspace parseWorkspace() throws StructurizrRenderingException {
+        Workspace parsedWorkspace = read(this.workspacePath);
+        try {
+            this.themeCache.loadThemes(this.workspacePath, parsedWorkspace);
+        } catch (Exception e) {
+            throw new StructurizrRenderingException("Failed to load themes of workspace", e);
+        }
+        return parsedWorkspace;
+    }
+
+    /**
+     * Reads a workspace without loading its themes. A workspace JSON file, e.g. exported from Structurizr Lite, is read
+     * directly, skipping the DSL parser.
+     *
+     * @param workspacePath The path of the workspace DSL or JSON file.
+     *
+     * @return The workspace.
+     *
+     * @throws StructurizrRenderingException In case the workspace could not be read.
+     */
+    static Workspace read(Path workspacePath) throws StructurizrRenderingException {
+        if (isWorkspaceJson(workspacePath)) {
+            log.info("Reading Structurizr JSON: {}", workspacePath);
+            try {
+                return WorkspaceUtils.loadWorkspaceFromJson(workspacePath.toFile());
+            } catch (Exception e) {
+                throw new StructurizrRenderingException("Could not read workspace json", e);
+            }
+        }
+
+        log.info("Parsing Structurizr DSL: {}", workspacePath);
+        try {
+            String workspaceDsl = Files.readString(workspacePath);
+            StructurizrDslParser parser = new StructurizrDslParser();
+            parser.parse(workspaceDsl, workspacePath.toFile());
+            return parser.getWorkspace();
+        } catch (IOException | StructurizrDslParserException e) {
+            throw new StructurizrRenderingException("Could not read workspace dsl", e);
+        } catch (Exception e) {
+            throw new StructurizrRenderingException("Failed to process workspace dsl", e);
+        }
+    }
+
+    /**
+     * @return The given workspace file or, if absent, the workspace JSON file, which is then rendered without parsing
+     * any DSL.
+     *
+     * @throws StructurizrRenderingException In case neither of both files is given.
+     */
+    static Path resolveWorkspacePath(Path workspacePath, Path workspaceJsonPath) throws StructurizrRenderingException {
+        if (workspacePath != null) {
+            return workspacePath;
+        } else if (workspaceJsonPath == null) {
+            throw new StructurizrRenderingException("Either a workspace DSL or a workspace JSON file is required");
+        }
+        return workspaceJsonPath;
+    }
+
+    /**
+     * @return The given workspace JSON file or, if absent, the workspace file itself if given as JSON, as it contains
+     * the layout as well.
+     */
+    static Path resolveWorkspaceJsonPath(Path workspacePath, Path workspaceJsonPath) {
+        return workspaceJsonPath == null && isWorkspaceJson(workspacePath) ? workspacePath : workspaceJsonPath;
+    }
+
+    static boolean isWorkspaceJson(Path workspacePath) {
+        return workspacePath.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json");
+    }
+
+}
@@ -0,0 +1,197 @@
+package de.materna.structurizr.renderer;
+
+import de.materna.structurizr.renderer.mermaid.MermaidExporter;
+import de.materna.structurizr.renderer.plantuml.PlantUMLExporter;
+import de.materna.structurizr.renderer.plantuml.PlantumlLayoutEngine;
+import de.materna.structurizr.renderer.structurizr.StructurizrExporter;
+import de.materna.structurizr.renderer.theme.ThemeCache;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Entry point for rendering Structurizr workspaces. Renderers keep exporters with their caches and resources, e.g. a
+ * browser rendering views in the background, until closed.
+ *
+ * @author Stephan Pirnbaum
+ */
+@Slf4j
+public class WorkspaceRenderer implements AutoCloseable {
+
+    private final Executor executor;
+
+    private final ThemeCache themeCache;
+
+    // Cache exporters with their in-memory caches of rendered views and expensive setup (Playwright installation)
+    private final Map<RenderTarget, AbstractDiagramExporter> diagramExporters = new HashMap<>();
+
+    private boolean closed;
+
+    /**
+     * Renders on the calling thread, i.e. views and renderers are rendered one after another. Use
+     * {@link #WorkspaceRenderer(Executor)} to render concurrently.
+     */
+    public WorkspaceRenderer() {
+        this(Runnable::run);
+    }
+
+    /**
+     * @param executor The executor used to render the views of a workspace concurrently, if supported by the renderer.
+     *                 Rendering waits for the views scheduled on it, so it must not be an executor whose threads call
+     *                 {@link #render}, e.g. a bounded pool also running the render calls, as this may deadlock.
+     */
+    public WorkspaceRenderer(@NonNull Executor executor) {
+        this(executor, ThemeCache.createDefault());
+    }
+
+    /**
+     * @param executor The executor used to render the views of a workspace concurrently, if supported by the renderer.
+     *                 Rendering waits for the views scheduled on it, so it must not be an executor whose threads call
+     *                 {@link #render}, e.g. a bounded pool also running the render calls, as this may deadlock.
+     * @param themeCache The cache to resolve the themes referenced by workspaces from.
+     */
+    public WorkspaceRenderer(@NonNull Executor executor, @NonNull ThemeCache themeCache) {
+        this.executor = executor;
+        this.themeCache = themeCache;
+    }
+
+    public Map<String, Path> render(@Nullable Path workspaceDslPath,
+                                    @Nullable Path workspaceJsonPath,
+                                    @NonNull Path outputDir,
+                                    @Nullable String viewKey,
+                                    @Nullable Renderer renderer,
+                                    @Nullable PlantumlLayoutEngine plantumlLayoutEngine,
+                                    @Nullable String playwrightWsEndpoint) throws StructurizrRenderingException {
+        Map<RenderTarget, Map<String, Path>> result = render(
+                workspaceDslPath,
+                workspaceJsonPath,
+                outputDir,
+                viewKey,
+                renderer != null ? Set.of(renderer) : Set.of(),
+                plantumlLayoutEngine != null ? Set.of(plantumlLayoutEngine) : Set.of(),
+                playwrightWsEndpoint
+        );
+        return result.values().iterator().next();
+    }
+
+    /**
+     * Renders the given workspace with several renderers in one pass. The workspace is parsed at most once and shared by
+     * all renderers, which render concurrently using the executor of this renderer.
+     *
+     * @param workspaceDslPath The path of the workspace DSL file, or a workspace JSON file. If null, the workspace JSON file is rendered without parsing any DSL.
+     * @param workspaceJsonPath The workspace including layout information.
+     * @param outputDir The output directory.
+     * @param viewKey The key of the view to render or null, if all views should be rendered.
+     * @param renderers The renderers to use. Defaults to {@link Renderer#STRUCTURIZR} if empty.
+     * @param plantumlLayoutEngines The layout engines to render with if {@link Renderer#PLANTUML_C4} is requested, one diagram per engine. Defaults to {@link PlantumlLayoutEngine#GRAPHVIZ} if empty.
+     * @param playwrightWsEndpoint The Playwright URI to connect to if a running installation should be used.
+     *
+     * @return The generated files per renderer, each with the view key as key and the path to the file as value.
+     *
+     * @throws StructurizrRenderingException In case the workspace could not be rendered.
+     */
+    public Map<RenderTarget, Map<String, Path>> render(@Nullable Path workspaceDslPath,
+                                                       @Nullable Path workspaceJsonPath,
+                                                       @NonNull Path outputDir,
+                                                       @Nullable String viewKey,
+                                                       @NonNull Set<Renderer> renderers,
+                                                       @NonNull Set<PlantumlLayoutEngine> plantumlLayoutEngines,
+                                                       @Nullable String playwrightWsEndpoint) throws StructurizrRenderingException {
+        workspaceDslPath = WorkspaceLoader.resolveWorkspacePath(workspaceDslPath, workspaceJsonPath);
+        workspaceJsonPath = WorkspaceLoader.resolveWorkspaceJsonPath(workspaceDslPath, workspaceJsonPath);
+        WorkspaceLoader workspaceLoader = new WorkspaceLoader(workspaceDslPath, this.themeCache);
+        Map<RenderTarget, CompletableFuture<Map<String, Path>>> pendingTargets = new LinkedHashMap<>();
+        for (RenderTarget target : resolveRenderTargets(viewKey, renderers, plantumlLayoutEngines)) {
+            AbstractDiagramExporter diagramExporter = resolveDiagramExporter(target, playwrightWsEndpoint);
+
+            diagramExporter.setThemeCache(this.themeCache);
+
+            log.debug("Rendering view with key {} using engine {}", viewKey, target.renderer());
+
+            pendingTargets.put(target, diagramExporter.exportAsync(workspaceDslPath, workspaceJsonPath, outputDir.toFile(), viewKey, this.executor, workspaceLoader));
+        }
+
+        Map<RenderTarget, Map<String, Path>> result = new LinkedHashMap<>();
+        for (Map.Entry<RenderTarget, CompletableFuture<Map<String, Path>>> pendingTarget : pendingTargets.entrySet()) {
+            result.put(pendingTarget.getKey(), AbstractDiagramExporter.await(pendingTarget.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Determines the themes referenced by a workspace, e.g. to detect changes of them later on. They are known without
+     * further effort if the workspace was parsed by this renderer, otherwise it is read without loading its themes, as
+     * rendering does not parse workspaces whose diagrams are all up-to-date.
+     *
+     * @param workspacePath The path of the workspace DSL or JSON file.
+     *
+     * @return The URLs of the themes referenced by the workspace.
+     *
+     * @throws StructurizrRenderingException In case the workspace could not be read.
+     */
+    public List<String> getReferencedThemes(@NonNull Path workspacePath) throws StructurizrRenderingException {
+        Optional<List<String>> referencedThemes = this.themeCache.getReferencedThemes(workspacePath);
+        if (referencedThemes.isPresent()) {
+            return referencedThemes.get();
+        }
+        return ThemeCache.getReferencedThemes(WorkspaceLoader.read(workspacePath));
+    }
+
+    private Set<RenderTarget> resolveRenderTargets(@Nullable String viewKey, @NonNull Set<Renderer> renderers, @NonNull Set<PlantumlLayoutEngine> plantumlLayoutEngines) {
+        if (renderers.isEmpty()) {
+            log.info("No renderer for view {} provided. Using Structurizr.", viewKey);
+            renderers = Set.of(Renderer.STRUCTURIZR);
+        }
+        Set<RenderTarget> targets = new LinkedHashSet<>();
+        for (Renderer renderer : renderers) {
+            if (renderer != Renderer.PLANTUML_C4) {
+                targets.add(new RenderTarget(renderer, null));
+            } else if (plantumlLayoutEngines.isEmpty()) {
+                log.info("No PlantUML layout engine provided for view {}. Using Graphviz.", viewKey);
+                targets.add(new RenderTarget(renderer, PlantumlLayoutEngine.GRAPHVIZ));
+            } else {
+                plantumlLayoutEngines.forEach(engine -> targets.add(new RenderTarget(renderer, engine)));
+            }
+        }
+        return targets;
+    }
+
+    private synchronized AbstractDiagramExporter resolveDiagramExporter(@NonNull RenderTarget target, @Nullable String playwrightWsEndpoint) throws StructurizrRenderingException {
+        if (this.closed) {
+            throw new StructurizrRenderingException("Renderer is closed");
+        }
+        AbstractDiagramExporter diagramExporter = this.diagramExporters.get(target);
+        if (diagramExporter == null) {
+            diagramExporter = switch (target.renderer()) {
+                case PLANTUML_C4 -> new PlantUMLExporter(target.plantumlLayoutEngine());
+                case MERMAID -> new MermaidExporter();
+                case STRUCTURIZR -> new StructurizrExporter(playwrightWsEndpoint);
+            };
+            this.diagramExporters.put(target, diagramExporter);
+        }
+        return diagramExporter;
+    }
+
+    /**
+     * Closes all exporters of this renderer, waiting for views rendered in the background to finish or be cancelled.
+     * The executor is not shut down, as it is provided by the caller.
+     */
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        this.diagramExporters.values().forEach(AbstractDiagramExporter::close);
+        this.diagramExporters.clear();
+    }
+
+}
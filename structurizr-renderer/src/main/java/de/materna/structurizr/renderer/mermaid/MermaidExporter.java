@@ -4,11 +4,13 @@ import com.structurizr.export.Diagram;
 import com.structurizr.export.DiagramExporter;
 import com.structurizr.export.mermaid.MermaidDiagramExporter;
 import de.materna.structurizr.renderer.AbstractBuildInDiagramExporter;
+import de.materna.structurizr.renderer.OutputFileUtil;
 import de.materna.structurizr.renderer.StructurizrRenderingException;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 /**
@@ -33,11 +35,14 @@ public class MermaidExporter extends AbstractBuildInDiagramExporter {
 
     @Override
     protected Path render(Diagram diagram, Path outputFilePath) throws StructurizrRenderingException {
+        Path tempOutputFilePath = null;
         try {
+            // mmdc writes the file itself, therefore render to a temporary file first to have the result moved atomically
+            tempOutputFilePath = Files.createTempFile(outputFilePath.getParent(), "." + outputFilePath.getFileName(), ".svg");
             ProcessBuilder pb = new ProcessBuilder(
                     mmdcPath,
-                    "-i", outputFilePath.getParent().resolve(diagram.getKey() + ".mmd").toString(),
-                    "-o", outputFilePath.toString()
+                    "-i", constructOutputFilePath(outputFilePath.getParent().toFile(), diagram.getKey(), getFileExtension()).toString(),
+                    "-o", tempOutputFilePath.toString()
             );
 
             pb.directory(new File(".")); // working directory
@@ -45,14 +50,27 @@ public class MermaidExporter extends AbstractBuildInDiagramExporter {
             Process process = pb.start();
             int exitCode = process.waitFor();
 
-            if (exitCode == 0) {
-                log.info("Mermaid diagram rendered successfully: {}", outputFilePath.getFileName().toString());
-            } else {
-                log.warn("Mermaid rendering failed with exit code {}", exitCode);
+            if (exitCode != 0) {
+                // a diagram of a previous rendering may still exist, it must not be taken as the result of this one
+                throw new StructurizrRenderingException("Mermaid rendering failed with exit code " + exitCode);
             }
+            OutputFileUtil.write(outputFilePath, Files.readAllBytes(tempOutputFilePath));
+            log.info("Mermaid diagram rendered successfully: {}", outputFilePath.getFileName().toString());
             return outputFilePath;
         } catch (InterruptedException | IOException e) {
             throw new StructurizrRenderingException("Failed to render Mermaid diagram", e);
+        } finally {
+            deleteTempFile(tempOutputFilePath);
+        }
+    }
+
+    private void deleteTempFile(Path tempFile) {
+        if (tempFile != null) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                log.warn("Unable to delete temporary file {}", tempFile, e);
+            }
         }
     }
 
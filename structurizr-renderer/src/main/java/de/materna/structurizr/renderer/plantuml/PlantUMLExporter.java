@@ -3,15 +3,15 @@ package de.materna.structurizr.renderer.plantuml;
 import com.structurizr.export.Diagram;
 import com.structurizr.export.DiagramExporter;
 import de.materna.structurizr.renderer.AbstractBuildInDiagramExporter;
+import de.materna.structurizr.renderer.OutputFileUtil;
 import de.materna.structurizr.renderer.StructurizrRenderingException;
 import lombok.extern.slf4j.Slf4j;
 import net.sourceforge.plantuml.FileFormat;
 import net.sourceforge.plantuml.FileFormatOption;
 import net.sourceforge.plantuml.SourceStringReader;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
 /**
@@ -38,15 +38,21 @@ public class PlantUMLExporter extends AbstractBuildInDiagramExporter {
     @Override
     protected Path render(Diagram diagram, Path outputFilePath) throws StructurizrRenderingException {
         String plantUmlSource = diagram.getDefinition();
-        try (OutputStream os = Files.newOutputStream(outputFilePath)) {
-            SourceStringReader reader = new SourceStringReader(plantUmlSource);
-            reader.outputImage(os, new FileFormatOption(FileFormat.SVG));
+        try {
+            OutputFileUtil.write(outputFilePath, renderSvg(plantUmlSource));
             return outputFilePath;
         } catch (IOException e) {
             throw new StructurizrRenderingException("Failed to write file during rendering of PlantUML diagram", e);
         }
     }
 
+    private byte[] renderSvg(String plantUmlSource) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        SourceStringReader reader = new SourceStringReader(plantUmlSource);
+        reader.outputImage(os, new FileFormatOption(FileFormat.SVG));
+        return os.toByteArray();
+    }
+
     @Override
     protected String getRendererString() {
         return "C4-PlantUML-" + plantumlLayoutEngine.getRepresentation();
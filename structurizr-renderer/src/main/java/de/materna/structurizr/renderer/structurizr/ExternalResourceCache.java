@@ -0,0 +1,306 @@
+package de.materna.structurizr.renderer.structurizr;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.microsoft.playwright.APIResponse;
+import de.materna.structurizr.renderer.HashingUtil;
+import de.materna.structurizr.renderer.OutputFileUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Two-level cache for external resources requested by the browser during rendering, e.g. element icons, fonts, images
+ * and themes. Successful responses are kept in a bounded in-memory cache and persisted to a bounded directory, so that
+ * subsequent pages, renders and processes do not need to fetch them again and rendering works without network access
+ * once the resources have been cached. Like themes, resources are fetched again once they are older than the
+ * time-to-live, while the cached version is still used if that fails.
+ */
+@Slf4j
+class ExternalResourceCache {
+
+    private static final long DEFAULT_MAX_MEMORY_BYTES = 64L * 1024 * 1024;
+    private static final long DEFAULT_MAX_DISK_BYTES = 256L * 1024 * 1024;
+
+    private static final Duration DEFAULT_TTL = Duration.ofDays(1);
+
+    private static final String BODY_SUFFIX = ".body";
+    private static final String CONTENT_TYPE_SUFFIX = ".type";
+
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private static final Duration PREFETCH_TIMEOUT = Duration.ofSeconds(5);
+
+    private final Path cacheDir;
+
+    private final Duration ttl;
+
+    private final long maxDiskBytes;
+
+    private final Cache<String, CachedResource> memoryCache;
+
+    private final HttpClient httpClient = createHttpClient();
+
+    // size of the cached bodies on disk, determined by scanning the directory on the first write
+    private long diskBytes = -1;
+
+    ExternalResourceCache(Path cacheDir, Duration ttl, long maxMemoryBytes, long maxDiskBytes) {
+        this.cacheDir = cacheDir;
+        this.ttl = ttl;
+        this.maxDiskBytes = maxDiskBytes;
+        this.memoryCache = CacheBuilder.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .<String, CachedResource>weigher((url, resource) -> resource.body().length)
+                .build();
+    }
+
+    static ExternalResourceCache createDefault() {
+        return new ExternalResourceCache(
+                Path.of(System.getProperty("user.home"), ".structurizr-renderer", "resources"),
+                DEFAULT_TTL,
+                DEFAULT_MAX_MEMORY_BYTES,
+                DEFAULT_MAX_DISK_BYTES);
+    }
+
+    /**
+     * @param url The URL of the resource.
+     *
+     * @return The cached resource, also if expired, see {@link #isExpired(CachedResource)}.
+     */
+    Optional<CachedResource> get(String url) {
+        CachedResource resource = this.memoryCache.getIfPresent(url);
+        if (resource != null) {
+            return Optional.of(resource);
+        }
+
+        String key = HashingUtil.buildHash(url);
+        Path bodyFile = this.cacheDir.resolve(key + BODY_SUFFIX);
+        Path contentTypeFile = this.cacheDir.resolve(key + CONTENT_TYPE_SUFFIX);
+        if (!Files.isRegularFile(bodyFile) || !Files.isRegularFile(contentTypeFile)) {
+            return Optional.empty();
+        }
+        try {
+            // the content type file is written with each fetch, the body file only if changed
+            resource = new CachedResource(Files.readString(contentTypeFile, StandardCharsets.UTF_8), Files.readAllBytes(bodyFile),
+                    Files.getLastModifiedTime(contentTypeFile).toInstant());
+            // mark as recently used to keep it when pruning the directory
+            Files.setLastModifiedTime(bodyFile, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            log.debug("Unable to read cached resource {}", url, e);
+            return Optional.empty();
+        }
+        this.memoryCache.put(url, resource);
+        return Optional.of(resource);
+    }
+
+    void put(String url, CachedResource resource) {
+        this.memoryCache.put(url, resource);
+
+        String key = HashingUtil.buildHash(url);
+        Path bodyFile = this.cacheDir.resolve(key + BODY_SUFFIX);
+        Path contentTypeFile = this.cacheDir.resolve(key + CONTENT_TYPE_SUFFIX);
+        try {
+            long previousSize = Files.isRegularFile(bodyFile) ? Files.size(bodyFile) : 0;
+            // content type first, so that a complete body file always has its content type available
+            OutputFileUtil.write(contentTypeFile, resource.contentType().getBytes(StandardCharsets.UTF_8));
+            // the content may be unchanged, but the time-to-live starts again
+            Files.setLastModifiedTime(contentTypeFile, FileTime.from(resource.fetched()));
+            OutputFileUtil.write(bodyFile, resource.body());
+            addDiskBytes(resource.body().length - previousSize);
+        } catch (IOException e) {
+            log.warn("Unable to persist resource {} in cache {}", url, this.cacheDir, e);
+        }
+    }
+
+    /**
+     * @param resource A cached resource.
+     *
+     * @return Whether the resource is older than the time-to-live and should be fetched again.
+     */
+    boolean isExpired(CachedResource resource) {
+        return resource.fetched().plus(this.ttl).isBefore(Instant.now());
+    }
+
+    /**
+     * Builds a fingerprint of the given resources from their URLs and the content of their cached versions. It changes
+     * whenever one of the resources changes in the cache, e.g. once an expired icon was fetched with new content.
+     *
+     * @param urls The URLs of the resources.
+     *
+     * @return The fingerprint, one line per resource in the format {@code <url>=<content hash>}.
+     */
+    String fingerprint(Collection<String> urls) {
+        StringBuilder fingerprint = new StringBuilder();
+        urls.stream().distinct().sorted().forEach(url -> fingerprint.append(url).append('=')
+                .append(get(url).map(resource -> HashingUtil.buildHash(resource.body())).orElse(""))
+                .append('\n'));
+        return fingerprint.toString();
+    }
+
+    /**
+     * @param fingerprint A fingerprint built by {@link #fingerprint(Collection)}.
+     *
+     * @return Whether all resources of the fingerprint are still cached with the same content.
+     */
+    boolean isCurrent(String fingerprint) {
+        List<String> urls = fingerprint.lines()
+                .filter(line -> line.lastIndexOf('=') > 0)
+                .map(line -> line.substring(0, line.lastIndexOf('=')))
+                .toList();
+        return fingerprint(urls).equals(fingerprint);
+    }
+
+    /**
+     * Fetches all given resources which are not yet cached or expired. The resources are fetched concurrently with a
+     * short timeout, so that a slow or unreachable host delays rendering by the timeout at most. Resources which could
+     * not be fetched are requested by the browser again while rendering.
+     *
+     * @param urls The URLs of the resources.
+     *
+     * @return A future completing once all resources have been fetched or failed to be fetched. It never completes
+     * exceptionally.
+     */
+    CompletableFuture<Void> prefetch(Collection<String> urls) {
+        List<CompletableFuture<Void>> fetches = new ArrayList<>();
+        for (String url : urls) {
+            if (get(url).filter(resource -> !isExpired(resource)).isPresent()) {
+                continue;
+            }
+            HttpRequest request;
+            try {
+                request = HttpRequest.newBuilder(URI.create(url)).timeout(PREFETCH_TIMEOUT).GET().build();
+            } catch (IllegalArgumentException e) {
+                log.warn("Unable to prefetch {}", url, e);
+                continue;
+            }
+            fetches.add(this.httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                    .thenAccept(response -> {
+                        if (response.statusCode() == 200) {
+                            put(url, new CachedResource(response.headers().firstValue("content-type").orElse(DEFAULT_CONTENT_TYPE), response.body()));
+                            log.debug("Prefetched {}", url);
+                        } else {
+                            log.warn("Unable to prefetch {}: HTTP {}", url, response.statusCode());
+                        }
+                    })
+                    .exceptionally(e -> {
+                        log.warn("Unable to prefetch {}", url, e);
+                        return null;
+                    }));
+        }
+        return CompletableFuture.allOf(fetches.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /*
+     * Uses the proxy configured for the browser, see HTTPS_PROXY, otherwise the proxy settings of the JVM
+     */
+    private static HttpClient createHttpClient() {
+        ProxySelector proxySelector = ProxySelector.getDefault();
+        String proxy = Optional.ofNullable(System.getenv("HTTPS_PROXY")).orElse(System.getenv("https_proxy"));
+        if (StringUtils.isNotBlank(proxy)) {
+            try {
+                URI proxyUri = URI.create(proxy.contains("://") ? proxy : "http://" + proxy);
+                proxySelector = ProxySelector.of(new InetSocketAddress(proxyUri.getHost(), proxyUri.getPort() > 0 ? proxyUri.getPort() : 80));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring invalid proxy {}", proxy, e);
+            }
+        }
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .connectTimeout(PREFETCH_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        if (proxySelector != null) {
+            builder.proxy(proxySelector);
+        }
+        return builder.build();
+    }
+
+    static String contentTypeOf(APIResponse response) {
+        return response.headers().getOrDefault("content-type", DEFAULT_CONTENT_TYPE);
+    }
+
+    /*
+     * Only scans the directory once it may exceed its maximum size, or to determine its initial size
+     */
+    private synchronized void addDiskBytes(long delta) throws IOException {
+        if (this.diskBytes < 0) {
+            // the scan includes the body just written
+            prune();
+        } else {
+            this.diskBytes += delta;
+            if (this.diskBytes > this.maxDiskBytes) {
+                prune();
+            }
+        }
+    }
+
+    /*
+     * Deletes the least recently used resources once the directory exceeds its maximum size
+     */
+    private void prune() throws IOException {
+        List<Path> bodyFiles;
+        try (Stream<Path> files = Files.list(this.cacheDir)) {
+            bodyFiles = new ArrayList<>(files.filter(f -> f.getFileName().toString().endsWith(BODY_SUFFIX)).toList());
+        }
+        long size = 0;
+        for (Path bodyFile : bodyFiles) {
+            size += Files.size(bodyFile);
+        }
+        this.diskBytes = size;
+        if (size <= this.maxDiskBytes) {
+            return;
+        }
+
+        bodyFiles.sort(Comparator.comparing(ExternalResourceCache::lastModified));
+        for (Path bodyFile : bodyFiles) {
+            if (size <= this.maxDiskBytes) {
+                break;
+            }
+            size -= Files.size(bodyFile);
+            String fileName = bodyFile.getFileName().toString();
+            Files.deleteIfExists(bodyFile);
+            Files.deleteIfExists(bodyFile.resolveSibling(fileName.substring(0, fileName.length() - BODY_SUFFIX.length()) + CONTENT_TYPE_SUFFIX));
+        }
+        this.diskBytes = size;
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * @param contentType The content type of the resource.
+     * @param body The content of the resource.
+     * @param fetched The time the resource was fetched the last time.
+     */
+    record CachedResource(String contentType, byte[] body, Instant fetched) {
+
+        CachedResource(String contentType, byte[] body) {
+            this(contentType, body, Instant.now());
+        }
+
+    }
+
+}
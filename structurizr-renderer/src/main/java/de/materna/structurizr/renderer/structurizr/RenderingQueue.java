@@ -0,0 +1,123 @@
+package de.materna.structurizr.renderer.structurizr;
+
+import de.materna.structurizr.renderer.StructurizrRenderingException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Order in which the views of a workspace are rendered within one browser session. Requested views are rendered first,
+ * in the order requested, also if requested while the session is already rendering. Afterwards, all other views which
+ * are not up-to-date are rendered one by one until cancelled. Once no view is left, the queue is closed and does not
+ * accept further requests.
+ */
+final class RenderingQueue {
+
+    private final Deque<String> requestedViews = new ArrayDeque<>();
+
+    private final Map<String, CompletableFuture<String>> renderedViews = new HashMap<>();
+
+    // views not up-to-date when the session started, rendered after the requested ones
+    private final Deque<String> remainingViews = new ArrayDeque<>();
+
+    private Set<String> viewKeys;
+
+    private boolean cancelled;
+
+    private boolean closed;
+
+    /**
+     * @param viewKey The key of the view.
+     *
+     * @return The future completing with the rendered view or null, if the queue does not accept further requests.
+     */
+    synchronized CompletableFuture<String> request(String viewKey) {
+        CompletableFuture<String> view = this.renderedViews.get(viewKey);
+        if (view != null && !(this.closed && view.isCompletedExceptionally())) {
+            return view;
+        } else if (this.closed) {
+            return null;
+        }
+        view = new CompletableFuture<>();
+        if (this.viewKeys != null && !this.viewKeys.contains(viewKey)) {
+            view.completeExceptionally(new StructurizrRenderingException("No view with key " + viewKey + " in provided workspace-file. Nothing generated."));
+            return view;
+        }
+        this.renderedViews.put(viewKey, view);
+        this.requestedViews.add(viewKey);
+        return view;
+    }
+
+    /**
+     * Stops rendering the views which were not requested once the current view is done.
+     */
+    synchronized void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Sets the views of the workspace once known. Requested views not part of it fail, all others not up-to-date are
+     * rendered after the requested ones.
+     *
+     * @param keys The keys of all views of the workspace.
+     * @param isUpToDate Whether a view does not need to be rendered again.
+     */
+    synchronized void acceptViewKeys(Set<String> keys, Predicate<String> isUpToDate) {
+        this.viewKeys = Set.copyOf(keys);
+        this.requestedViews.removeIf(key -> {
+            if (!this.viewKeys.contains(key)) {
+                this.renderedViews.get(key).completeExceptionally(
+                        new StructurizrRenderingException("No view with key " + key + " in provided workspace-file. Nothing generated."));
+                return true;
+            }
+            return false;
+        });
+        this.viewKeys.stream()
+                .filter(isUpToDate.negate())
+                .sorted()
+                .forEach(this.remainingViews::add);
+    }
+
+    /**
+     * @return The key of the view to render next or null, if no view is left. The queue is closed in the latter case.
+     */
+    synchronized String nextView() {
+        String key = this.requestedViews.poll();
+        if (key != null) {
+            return key;
+        }
+        while (!this.cancelled && (key = this.remainingViews.poll()) != null) {
+            if (!this.renderedViews.containsKey(key)) {
+                return key;
+            }
+        }
+        // no further requests are accepted, they start a new session instead
+        this.closed = true;
+        return null;
+    }
+
+    /**
+     * @param key The key of the view.
+     *
+     * @return The future to complete with the rendered view, shared with all requests of the view.
+     */
+    synchronized CompletableFuture<String> view(String key) {
+        return this.renderedViews.computeIfAbsent(key, k -> new CompletableFuture<>());
+    }
+
+    /**
+     * Closes the queue, failing all views not rendered yet.
+     *
+     * @param cause The reason of the views not being rendered.
+     */
+    synchronized void close(Exception cause) {
+        this.closed = true;
+        this.renderedViews.values().forEach(view -> view.completeExceptionally(cause));
+    }
+
+}
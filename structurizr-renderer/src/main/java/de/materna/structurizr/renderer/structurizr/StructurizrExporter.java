@@ -0,0 +1,555 @@
+package de.materna.structurizr.renderer.structurizr;
+
+import com.microsoft.playwright.APIResponse;
+import com.microsoft.playwright.Browser;
+import com.microsoft.playwright.BrowserContext;
+import com.microsoft.playwright.BrowserType;
+import com.microsoft.playwright.Locator;
+import com.microsoft.playwright.Page;
+import com.microsoft.playwright.Playwright;
+import com.microsoft.playwright.PlaywrightException;
+import com.microsoft.playwright.Route;
+import com.microsoft.playwright.impl.driver.Driver;
+import com.microsoft.playwright.options.WaitForSelectorState;
+import com.structurizr.Workspace;
+import com.structurizr.util.Url;
+import com.structurizr.util.WorkspaceUtils;
+import com.structurizr.view.ElementStyle;
+import com.structurizr.view.Styles;
+import de.materna.structurizr.renderer.AbstractDiagramExporter;
+import de.materna.structurizr.renderer.HashingUtil;
+import de.materna.structurizr.renderer.StructurizrRenderingException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Exporter implementation to convert a Structurizr {@link com.structurizr.Workspace} into a SVG using the native rendering mechanism also used in Structurizr UI.
+ * If the workspace is given as a json including layout information, e.g. from a manual layout from the UI, this layout will be used for rendering.
+ * If instead no layout is given, one will be generated using GraphViz. Therefore, a GraphViz installation is necessary.
+ * The requested view is rendered and returned first, the remaining views of the workspace are rendered afterwards in the
+ * background to serve later requests from the in-memory cache.
+ *
+ *
+ * @author Stephan Pirnbaum
+ */
+@Slf4j
+public class StructurizrExporter extends AbstractDiagramExporter {
+
+    private static final String RESOURCE_ROOT = "structurizr";
+    private static final String ENV_WS_ENDPOINT = "PLAYWRIGHT_WS_ENDPOINT";
+    private static final String WORKDIR_ORIGIN = "http://workdir.local";
+    private static final long SESSION_SHUTDOWN_TIMEOUT_SECONDS = 60;
+    // separates the fingerprint of the themes from the one of the icons in the hash file of a diagram
+    private static final String ICONS_FINGERPRINT_SEPARATOR = "--- icons\n";
+
+    @Getter
+    private final String rendererString = "Structurizr";
+
+    private final String playwrightWsEndpoint;
+
+    // Cache external resources like icons across pages and renders
+    private final ExternalResourceCache resourceCache = ExternalResourceCache.createDefault();
+
+    // The icons referenced by the element styles of parsed workspaces
+    private final Map<Workspace, Set<String>> iconUrls = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // Playwright objects must only be used by the thread that created them, so each browser session runs on this thread
+    private final ExecutorService sessionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "structurizr-rendering-session");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // The session rendering the most recently requested workspace
+    private RenderingSession session;
+
+    private boolean closed;
+
+    // The most recently requested workspace and the key of a session rendering it
+    private Workspace keyedWorkspace;
+
+    private String keyedSessionKey;
+
+    public StructurizrExporter(String playwrightWsEndpoint) throws StructurizrRenderingException {
+        this.playwrightWsEndpoint = resolveRemoteUrl(playwrightWsEndpoint);
+        if (this.playwrightWsEndpoint == null) {
+            // Manually download browser (chrome only) once to avoid file-system checks in further runs
+            try {
+                installBrowser(new String[]{"install", "chromium", "--with-deps", "--only-shell"});
+            } catch (IOException | InterruptedException e) {
+                throw new StructurizrRenderingException("Could not install Chromium", e);
+            }
+        }
+    }
+
+    @Override
+    public Path export(Path workspacePath, Workspace workspace, Path workspaceJsonPath, File outputDir, String viewKey) throws StructurizrRenderingException {
+        String svg;
+        try {
+            svg = requestView(workspacePath, workspace, workspaceJsonPath, viewKey).join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof StructurizrRenderingException renderingException) {
+                throw renderingException;
+            }
+            throw new StructurizrRenderingException("Failed to export workspace to SVG", cause);
+        }
+
+        String hash = buildHash(workspacePath, workspaceJsonPath, viewKey);
+        String themesFingerprint = buildThemesFingerprint(workspace);
+        Path outputFile = constructOutputFilePath(outputDir, viewKey);
+        try {
+            // only the requested view is written. This is because IDEA and the confluence-publisher plugin have target
+            // directory per adoc document. Storing all views would lead to flooding the folder with diagrams not part
+            // of the adoc document. Performance is still guaranteed by using the in-memory cache.
+            writeFile(svg, outputFile, constructOutputHashFilePath(outputFile, hash), themesFingerprint);
+        } catch (IOException e) {
+            throw new StructurizrRenderingException("Failed to write file during rendering of view " + viewKey, e);
+        }
+        this.cache.put(viewKey, new RenderedView(hash, themesFingerprint, svg, null));
+        log.info("Exported: {}", outputFile.toAbsolutePath());
+        return outputFile;
+    }
+
+    /**
+     * Icons are embedded into the rendered diagrams, i.e. the fingerprint of the icons referenced by the workspace is
+     * added, so that a changed icon invalidates the diagrams as well.
+     */
+    @Override
+    protected String buildThemesFingerprint(Workspace workspace) {
+        return super.buildThemesFingerprint(workspace) + ICONS_FINGERPRINT_SEPARATOR + this.resourceCache.fingerprint(resolveIconUrls(workspace));
+    }
+
+    @Override
+    protected boolean isCurrent(String themesFingerprint) {
+        int separator = themesFingerprint.indexOf(ICONS_FINGERPRINT_SEPARATOR);
+        return separator >= 0
+                && super.isCurrent(themesFingerprint.substring(0, separator))
+                && this.resourceCache.isCurrent(themesFingerprint.substring(separator + ICONS_FINGERPRINT_SEPARATOR.length()));
+    }
+
+    /*
+     * Requests the view from the running session if it renders the same workspace, otherwise cancels the prefetching of
+     * the running session and starts a new one
+     */
+    private synchronized CompletableFuture<String> requestView(Path workspacePath, Workspace workspace, Path workspaceJsonPath, String viewKey) throws StructurizrRenderingException {
+        if (this.closed) {
+            throw new StructurizrRenderingException("Exporter is closed");
+        }
+        String wsContent = null;
+        // the views of a loaded workspace are exported one by one, so the session key is only computed once per workspace
+        if (workspace != this.keyedWorkspace) {
+            wsContent = readWorkspaceContent(workspace, workspaceJsonPath);
+            this.keyedWorkspace = workspace;
+            this.keyedSessionKey = HashingUtil.buildHash(wsContent);
+        }
+        String sessionKey = this.keyedSessionKey;
+        if (this.session != null) {
+            CompletableFuture<String> view = this.session.sessionKey.equals(sessionKey) ? this.session.request(viewKey) : null;
+            if (view != null) {
+                log.debug("Requesting view {} from running rendering session", viewKey);
+                return view;
+            }
+            this.session.cancel();
+        }
+        if (wsContent == null) {
+            wsContent = readWorkspaceContent(workspace, workspaceJsonPath);
+        }
+        this.session = new RenderingSession(sessionKey, workspacePath, workspace, workspaceJsonPath, wsContent);
+        CompletableFuture<String> view = this.session.request(viewKey);
+        this.sessionExecutor.execute(this.session);
+        return view;
+    }
+
+    private String readWorkspaceContent(Workspace workspace, Path workspaceJsonPath) throws StructurizrRenderingException {
+        try {
+            if (workspaceJsonPath == null) {
+                return WorkspaceUtils.toJson(workspace, true);
+            }
+            log.info("Workspace layout file provided. Using this instead of the Workspace DSL");
+            return Files.readString(workspaceJsonPath);
+        } catch (Exception e) {
+            throw new StructurizrRenderingException("Failed to export workspace to SVG", e);
+        }
+    }
+
+    /**
+     * Cancels rendering the views which were not requested, e.g. before shutting down.
+     */
+    public synchronized void cancelPrefetching() {
+        if (this.session != null) {
+            this.session.cancel();
+        }
+    }
+
+    /**
+     * Cancels rendering the views which were not requested and waits for the running session to finish the current view
+     * and close its browser, see {@link #cancelPrefetching()}. Requests for views fail afterwards.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            this.closed = true;
+            cancelPrefetching();
+        }
+        this.sessionExecutor.shutdown();
+        try {
+            if (!this.sessionExecutor.awaitTermination(SESSION_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Rendering session did not finish within {} seconds", SESSION_SHUTDOWN_TIMEOUT_SECONDS);
+                this.sessionExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            this.sessionExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * All views are rendered one after another within one browser session, see RenderingSession
+     */
+    @Override
+    protected boolean isParallelExportSupported() {
+        return false;
+    }
+
+    private Page loadPage(Browser browser, String wsContent) {
+        BrowserContext ctx = browser.newContext(new Browser.NewContextOptions().setViewportSize(1920, 1080));
+        Page page = ctx.newPage();
+
+        page.onConsoleMessage(msg -> log.debug("[console.{}] {}", msg.type(), msg.text()));
+
+        page.onPageError(err -> log.warn("[pageerror] {}", err));
+
+        mountWorkdirViaRoute(ctx, wsContent);
+
+        page.navigate(WORKDIR_ORIGIN + "/export.html");
+
+        page.waitForFunction("() => window.structurizrLoaded === true");
+
+        return page;
+    }
+
+    private void mountWorkdirViaRoute(BrowserContext ctx, String wsContent) {
+        ctx.route("**/*", route -> {
+            String url = route.request().url();
+
+            if (!url.startsWith(WORKDIR_ORIGIN + "/")) {
+                serveExternalResource(route, url);
+                return;
+            } else if (url.endsWith("workspace.json")) {
+                route.fulfill(new Route.FulfillOptions()
+                        .setStatus(200)
+                        .setContentType("application/json")
+                        .setBody(wsContent));
+                return;
+            }
+
+            try {
+                String path = URI.create(url).getPath();       // e.g. /diagram-basic.html
+                if (path.startsWith("/")) path = path.substring(1);
+
+                String classpathPath = RESOURCE_ROOT + "/" + path;
+
+                byte[] body = loadFromClasspath(classpathPath);
+                if (body == null) {
+                    route.fulfill(new Route.FulfillOptions().setStatus(404));
+                    return;
+                }
+
+                String contentType = probeContentTypeByName(path);
+
+                route.fulfill(new Route.FulfillOptions()
+                        .setStatus(200)
+                        .setContentType(contentType)
+                        .setBodyBytes(body)
+                        .setHeaders(Map.of("Cache-Control", "no-cache")));
+
+            } catch (Exception e) {
+                log.warn("Unable to serve {}", url, e);
+                route.fulfill(new Route.FulfillOptions().setStatus(500));
+            }
+        });
+    }
+
+    private void serveExternalResource(Route route, String url) {
+        if (!"GET".equals(route.request().method())) {
+            route.resume();
+            return;
+        }
+
+        Optional<ExternalResourceCache.CachedResource> cached = this.resourceCache.get(url);
+        if (cached.isPresent() && (getThemeCache().isOffline() || !this.resourceCache.isExpired(cached.get()))) {
+            log.debug("Serving {} from resource cache", url);
+            fulfill(route, cached.get());
+            return;
+        }
+
+        try {
+            APIResponse response = route.fetch();
+            if (response.status() == 200) {
+                this.resourceCache.put(url, new ExternalResourceCache.CachedResource(ExternalResourceCache.contentTypeOf(response), response.body()));
+            }
+            route.fulfill(new Route.FulfillOptions().setResponse(response));
+        } catch (PlaywrightException e) {
+            if (cached.isPresent()) {
+                log.warn("Unable to refresh {}. Using cached version.", url, e);
+                fulfill(route, cached.get());
+            } else {
+                log.warn("Unable to fetch {}", url, e);
+                route.abort();
+            }
+        }
+    }
+
+    private static void fulfill(Route route, ExternalResourceCache.CachedResource resource) {
+        route.fulfill(new Route.FulfillOptions()
+                .setStatus(200)
+                .setContentType(resource.contentType())
+                .setBodyBytes(resource.body())
+                .setHeaders(Map.of("Access-Control-Allow-Origin", "*")));
+    }
+
+    /*
+     * Icons referenced by element styles, including the ones of themes, are fetched upfront in one go instead of
+     * one by one while the browser is waiting for them. Skipped in offline mode.
+     */
+    private CompletableFuture<Void> prefetchResources(Workspace workspace) {
+        if (getThemeCache().isOffline()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return this.resourceCache.prefetch(resolveIconUrls(workspace));
+    }
+
+    private Set<String> resolveIconUrls(Workspace workspace) {
+        return this.iconUrls.computeIfAbsent(workspace, w -> {
+            Styles styles = w.getViews().getConfiguration().getStyles();
+            Set<String> urls = new TreeSet<>();
+            Stream.concat(
+                            styles.getElements().stream(),
+                            w.getModel().getElements().stream().map(styles::findElementStyle))
+                    .map(ElementStyle::getIcon)
+                    .filter(icon -> Url.isHttpUrl(icon) || Url.isHttpsUrl(icon))
+                    .forEach(urls::add);
+            return Collections.unmodifiableSet(urls);
+        });
+    }
+
+    private byte[] loadFromClasspath(String resourcePath) throws IOException {
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream(resourcePath)) {
+            if (is == null) return null;
+            return is.readAllBytes();
+        }
+    }
+
+    private String probeContentTypeByName(String name) {
+        if (name.endsWith(".html")) {
+            return "text/html; charset=utf-8";
+        } else if (name.endsWith(".js")) {
+            return "application/javascript; charset=utf-8";
+        } else if (name.endsWith(".css")) {
+            return "text/css; charset=utf-8";
+        } else {
+            return "";
+        }
+    }
+
+    private String exportView(Page page, String key) throws StructurizrRenderingException {
+        page.evaluate("(k) => changeView(k)", key);
+
+        // wait for rendered diagram
+        page.locator("#diagram svg")
+                .waitFor(new Locator.WaitForOptions()
+                        .setState(WaitForSelectorState.VISIBLE)
+                        .setTimeout(30000));
+
+        String svg = (String) page.evaluate("() => exportSvg()");
+        if (svg == null) {
+            throw new StructurizrRenderingException("SVG not retrieved for view " + key);
+        }
+        return normalizeSvgSize(svg);
+    }
+
+    private String resolveRemoteUrl(String playwrightWsEndpoint) {
+        if (StringUtils.isNotBlank(playwrightWsEndpoint)) {
+            return playwrightWsEndpoint;
+        } else if (StringUtils.isNotBlank(System.getenv(ENV_WS_ENDPOINT))) {
+            return System.getenv(ENV_WS_ENDPOINT);
+        }
+        return null;
+    }
+
+    private Browser obtainBrowser(Playwright pw) {
+        if (StringUtils.isNotBlank(this.playwrightWsEndpoint)) {
+            log.info("Connecting to Playwright Browser");
+            return pw.chromium().connect(this.playwrightWsEndpoint, new BrowserType.ConnectOptions().setTimeout(30000));
+        } else {
+            log.info("Launching local Chromium");
+            BrowserType.LaunchOptions opts = new BrowserType.LaunchOptions().setHeadless(true);
+            return pw.chromium().launch(opts);
+        }
+
+    }
+
+    private int installBrowser(String[] args) throws IOException, InterruptedException {
+        log.info("Installing Chromium via Playwright");
+        // mimic behaviour from com.microsoft.playwright.CLI#main
+        // see: https://playwright.dev/java/docs/browsers
+        Driver driver = Driver.ensureDriverInstalled(Collections.emptyMap(), false);
+        ProcessBuilder pb = driver.createProcessBuilder();
+        pb.command().addAll(Arrays.asList(args));
+        String version = Playwright.class.getPackage().getImplementationVersion();
+        if (version != null) {
+            pb.environment().put("PW_CLI_DISPLAY_VERSION", version);
+        }
+
+        pb.inheritIO();
+        Process process = pb.start();
+        return process.waitFor();
+    }
+
+    /*
+     * Structurizr exports SVG with 100% width / height, leading to rendering issues in some tools
+     */
+    private String normalizeSvgSize(String svg) {
+        Matcher styleW = Pattern.compile("width:\\s*(\\d+(?:\\.\\d+)?)px").matcher(svg);
+        Matcher styleH = Pattern.compile("height:\\s*(\\d+(?:\\.\\d+)?)px").matcher(svg);
+
+        String w = styleW.find() ? styleW.group(1) : null;
+        String h = styleH.find() ? styleH.group(1) : null;
+
+        if (w == null || h == null) {
+            log.warn("Unable to normalize SVG size. Some viewers may have issues showing the diagram correctly.");
+            return svg;
+        }
+
+        if (svg.matches("(?s).*\\bwidth\\s*=\\s*\"[^\"]*\".*")) {
+            svg = svg.replaceFirst("\\bwidth\\s*=\\s*\"[^\"]*\"", "width=\"" + w + "px\"");
+        }
+
+        if (svg.matches("(?s).*\\bheight\\s*=\\s*\"[^\"]*\".*")) {
+            svg = svg.replaceFirst("\\bheight\\s*=\\s*\"[^\"]*\"", "height=\"" + h + "px\"");
+        }
+
+        return svg;
+    }
+
+    /**
+     * Renders the views of one workspace within a single browser in the order of its {@link RenderingQueue}, so that
+     * later requests for views not requested yet are served from the in-memory cache. Requests for further views of the
+     * same workspace are answered by a running session. Once cancelled, the session stops after the current view unless
+     * views were requested.
+     */
+    private final class RenderingSession implements Runnable {
+
+        private final String sessionKey;
+
+        private final Path workspacePath;
+
+        private final Workspace workspace;
+
+        private final Path workspaceJsonPath;
+
+        private final String wsContent;
+
+        // known once the icons were fetched
+        private String themesFingerprint;
+
+        private final RenderingQueue queue = new RenderingQueue();
+
+        private RenderingSession(String sessionKey, Path workspacePath, Workspace workspace, Path workspaceJsonPath, String wsContent) {
+            this.sessionKey = sessionKey;
+            this.workspacePath = workspacePath;
+            this.workspace = workspace;
+            this.workspaceJsonPath = workspaceJsonPath;
+            this.wsContent = wsContent;
+        }
+
+        /*
+         * Returns null if the session does not accept further requests
+         */
+        private CompletableFuture<String> request(String viewKey) {
+            return this.queue.request(viewKey);
+        }
+
+        private void cancel() {
+            this.queue.cancel();
+        }
+
+        @Override
+        public void run() {
+            // force skip of browser install as installation was done manually in constructor
+            // otherwise, all browser instances will be downloaded
+            Map<String, String> config = new HashMap<>();
+            config.put("PLAYWRIGHT_SKIP_BROWSER_DOWNLOAD", "1");
+
+            try (Playwright pw = Playwright.create(new Playwright.CreateOptions().setEnv(config))) {
+                // resources are fetched while the browser starts
+                CompletableFuture<Void> prefetchedResources = prefetchResources(this.workspace);
+                try (Browser b = obtainBrowser(pw)) {
+                    prefetchedResources.join();
+                    this.themesFingerprint = buildThemesFingerprint(this.workspace);
+                    Page page = loadPage(b, this.wsContent);
+
+                    Map<String, String> views = (Map<String, String>) page.evaluate("() => resolveViews()");
+                    log.info("Rendering views: {}", views.keySet());
+                    if (views.isEmpty()) {
+                        throw new StructurizrRenderingException("No views defined in workspace-file. Nothing generated.");
+                    }
+                    this.queue.acceptViewKeys(views.keySet(), this::isCached);
+
+                    String key;
+                    while ((key = this.queue.nextView()) != null) {
+                        CompletableFuture<String> view = this.queue.view(key);
+                        try {
+                            String svg = exportView(page, key);
+                            cache.put(key, new RenderedView(buildHash(this.workspacePath, this.workspaceJsonPath, key), this.themesFingerprint, svg, null));
+                            view.complete(svg);
+                            log.debug("Rendered view {}", key);
+                        } catch (StructurizrRenderingException | PlaywrightException e) {
+                            view.completeExceptionally(e);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Rendering session failed", e);
+                this.queue.close(e);
+            } finally {
+                this.queue.close(new CancellationException("Rendering session closed"));
+            }
+        }
+
+        private boolean isCached(String viewKey) {
+            RenderedView renderedView = cache.get(viewKey);
+            return renderedView != null
+                    && renderedView.themesFingerprint().equals(this.themesFingerprint)
+                    && renderedView.hash().equals(buildHash(this.workspacePath, this.workspaceJsonPath, viewKey));
+        }
+
+    }
+
+}
@@ -0,0 +1,274 @@
+package de.materna.structurizr.renderer.theme;
+
+import com.structurizr.Workspace;
+import com.structurizr.http.HttpClient;
+import com.structurizr.http.RemoteContent;
+import com.structurizr.util.Url;
+import com.structurizr.view.ThemeUtils;
+import de.materna.structurizr.renderer.HashingUtil;
+import de.materna.structurizr.renderer.OutputFileUtil;
+import de.materna.structurizr.renderer.StructurizrRenderingException;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NonNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Directory-backed cache for the themes referenced by workspaces. Instead of fetching every theme on each parse of a
+ * workspace, themes are read from the cache directory and only fetched again once they are older than the configured
+ * time-to-live. In offline mode, no network access happens at all, i.e. all themes need to be seeded beforehand.
+ */
+@Slf4j
+@Getter
+public class ThemeCache {
+
+    public static final Duration DEFAULT_TTL = Duration.ofDays(1);
+
+    private static final int TIMEOUT_IN_MILLISECONDS = 10000;
+
+    private final Path cacheDir;
+
+    private final Duration ttl;
+
+    private final boolean offline;
+
+    // content hashes of cached themes by cache file
+    @Getter(AccessLevel.NONE)
+    private final Map<Path, ThemeFileHash> themeFileHashes = new ConcurrentHashMap<>();
+
+    // themes referenced by the workspaces loaded through this cache by workspace file
+    @Getter(AccessLevel.NONE)
+    private final Map<Path, List<String>> referencedThemes = new ConcurrentHashMap<>();
+
+    public ThemeCache(@NonNull Path cacheDir, @NonNull Duration ttl, boolean offline) {
+        this.cacheDir = cacheDir;
+        this.ttl = ttl;
+        this.offline = offline;
+    }
+
+    /**
+     * @return A cache located in the user's home directory with the default time-to-live.
+     */
+    public static ThemeCache createDefault() {
+        return new ThemeCache(defaultCacheDir(), DEFAULT_TTL, false);
+    }
+
+    public static Path defaultCacheDir() {
+        return Path.of(System.getProperty("user.home"), ".structurizr-renderer", "themes");
+    }
+
+    /**
+     * Loads the themes of the given workspace using the cache, like {@link ThemeUtils#loadThemes(Workspace)}. The styles
+     * of the themes are inlined into the styles of the workspace, see {@link ThemeStyleUtil}.
+     *
+     * @param workspace The workspace to load the themes for.
+     *
+     * @throws Exception In case a theme is neither cached nor could be fetched or read.
+     */
+    public void loadThemes(Workspace workspace) throws Exception {
+        List<ThemeStyleUtil.ThemeStyles> themes = new ArrayList<>();
+        for (String url : workspace.getViews().getConfiguration().getThemes()) {
+            if (Url.isUrl(url)) {
+                themes.add(ThemeStyleUtil.read(url, resolve(url)));
+            }
+        }
+        ThemeStyleUtil.inline(workspace.getViews().getConfiguration().getStyles(), themes);
+    }
+
+    /**
+     * Loads the themes of the given workspace using the cache and remembers the themes it references, see
+     * {@link #getReferencedThemes(Path)}.
+     *
+     * @param workspacePath The path of the workspace file.
+     * @param workspace The workspace to load the themes for.
+     *
+     * @throws Exception In case a theme is neither cached nor could be fetched.
+     */
+    public void loadThemes(Path workspacePath, Workspace workspace) throws Exception {
+        this.referencedThemes.put(workspacePath.toAbsolutePath().normalize(), getReferencedThemes(workspace));
+        loadThemes(workspace);
+    }
+
+    /**
+     * @param workspacePath The path of a workspace file.
+     *
+     * @return The URLs of the themes referenced by the workspace when it was loaded the last time through this cache or
+     * empty, if it was not loaded yet.
+     */
+    public Optional<List<String>> getReferencedThemes(Path workspacePath) {
+        return Optional.ofNullable(this.referencedThemes.get(workspacePath.toAbsolutePath().normalize()));
+    }
+
+    /**
+     * @param workspace The workspace.
+     *
+     * @return The URLs of the themes referenced by the workspace.
+     */
+    public static List<String> getReferencedThemes(Workspace workspace) {
+        return Arrays.stream(workspace.getViews().getConfiguration().getThemes())
+                .filter(Url::isUrl)
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Fetches the given themes into the cache regardless of their age, e.g. to prepare a cache for offline usage.
+     *
+     * @param urls The URLs of the themes.
+     *
+     * @throws StructurizrRenderingException In case a theme could not be fetched.
+     */
+    public void seed(Collection<String> urls) throws StructurizrRenderingException {
+        if (this.offline) {
+            throw new StructurizrRenderingException("Themes can not be seeded in offline mode");
+        }
+        for (String url : urls) {
+            try {
+                store(url, fetch(url));
+                log.info("Cached theme {}", url);
+            } catch (Exception e) {
+                throw new StructurizrRenderingException("Unable to cache theme " + url, e);
+            }
+        }
+    }
+
+    /**
+     * Builds a fingerprint of the themes referenced by the given workspace, see {@link #fingerprint(Collection)}.
+     *
+     * @param workspace The workspace.
+     *
+     * @return The fingerprint of the themes of the workspace.
+     */
+    public String fingerprint(Workspace workspace) {
+        return fingerprint(getReferencedThemes(workspace));
+    }
+
+    /**
+     * Builds a fingerprint of the given themes from their URLs and the content of their cached versions. It changes
+     * whenever one of the themes changes in the cache and therefore invalidates the diagrams rendered with it. Content
+     * hashes are memoized by the modification time of the cache files, i.e. a fingerprint only costs reading the file
+     * attributes once the themes were hashed.
+     *
+     * @param themeUrls The URLs of the themes.
+     *
+     * @return The fingerprint, one line per theme in the format {@code <url>=<content hash>}.
+     */
+    public String fingerprint(Collection<String> themeUrls) {
+        StringBuilder fingerprint = new StringBuilder();
+        themeUrls.stream().distinct().sorted().forEach(url ->
+                fingerprint.append(url).append('=').append(contentHash(url)).append('\n'));
+        return fingerprint.toString();
+    }
+
+    /**
+     * @param themesFingerprint A fingerprint built by {@link #fingerprint(Collection)}.
+     *
+     * @return Whether all themes of the fingerprint are still cached with the same content.
+     */
+    public boolean isCurrent(String themesFingerprint) {
+        List<String> themeUrls = themesFingerprint.lines()
+                .filter(line -> line.lastIndexOf('=') > 0)
+                .map(line -> line.substring(0, line.lastIndexOf('=')))
+                .toList();
+        return fingerprint(themeUrls).equals(themesFingerprint);
+    }
+
+    private String contentHash(String url) {
+        Path themeFile = constructThemeFilePath(url);
+        try {
+            FileTime lastModified = Files.getLastModifiedTime(themeFile);
+            ThemeFileHash themeFileHash = this.themeFileHashes.get(themeFile);
+            if (themeFileHash == null || !themeFileHash.lastModified().equals(lastModified)) {
+                themeFileHash = new ThemeFileHash(lastModified, HashingUtil.buildHash(Files.readString(themeFile, StandardCharsets.UTF_8)));
+                this.themeFileHashes.put(themeFile, themeFileHash);
+            }
+            return themeFileHash.hash();
+        } catch (IOException e) {
+            // not cached (yet)
+            return "";
+        }
+    }
+
+    /**
+     * Resolves the content of a theme, preferring the cached version while it is not expired.
+     *
+     * @param url The URL of the theme.
+     *
+     * @return The theme as JSON.
+     *
+     * @throws IOException In case the theme is neither cached nor could be fetched.
+     */
+    String resolve(String url) throws IOException {
+        Path themeFile = constructThemeFilePath(url);
+        boolean cached = Files.isRegularFile(themeFile);
+        if (cached && (this.offline || !isExpired(themeFile))) {
+            log.debug("Theme cache hit for {}", url);
+            return Files.readString(themeFile, StandardCharsets.UTF_8);
+        } else if (this.offline) {
+            throw new IOException("Theme " + url + " is not available in theme cache " + this.cacheDir + " while being offline");
+        }
+
+        try {
+            String theme = fetch(url);
+            store(url, theme);
+            return theme;
+        } catch (IOException | RuntimeException e) {
+            if (cached) {
+                log.warn("Unable to refresh theme {}. Using cached version.", url, e);
+                return Files.readString(themeFile, StandardCharsets.UTF_8);
+            }
+            throw e;
+        }
+    }
+
+    private String fetch(String url) throws IOException {
+        log.info("Fetching theme {}", url);
+        HttpClient httpClient = new HttpClient();
+        httpClient.setTimeout(TIMEOUT_IN_MILLISECONDS);
+        // the client denies all URLs by default, only allow the one of the theme referenced by the workspace
+        httpClient.allow(Pattern.quote(url));
+        RemoteContent content = httpClient.get(url);
+        String contentType = content.getContentType();
+        if (contentType == null || !(contentType.startsWith(RemoteContent.CONTENT_TYPE_JSON) || contentType.startsWith(RemoteContent.CONTENT_TYPE_PLAIN_TEXT))) {
+            throw new IOException(String.format("%s - expected content type of %s, actual content type is %s", url, RemoteContent.CONTENT_TYPE_JSON, contentType));
+        }
+        return content.getContentAsString();
+    }
+
+    private void store(String url, String theme) throws IOException {
+        Path themeFile = constructThemeFilePath(url);
+        OutputFileUtil.write(themeFile, theme.getBytes(StandardCharsets.UTF_8));
+        // the content may be unchanged, but the time-to-live starts again
+        Files.setLastModifiedTime(themeFile, FileTime.from(Instant.now()));
+    }
+
+    private boolean isExpired(Path themeFile) throws IOException {
+        Instant fetched = Files.getLastModifiedTime(themeFile).toInstant();
+        return fetched.plus(this.ttl).isBefore(Instant.now());
+    }
+
+    private Path constructThemeFilePath(String url) {
+        return this.cacheDir.resolve(HashingUtil.buildHash(url) + ".json");
+    }
+
+    private record ThemeFileHash(FileTime lastModified, String hash) {
+    }
+
+}
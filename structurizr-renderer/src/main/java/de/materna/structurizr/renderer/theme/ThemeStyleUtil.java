@@ -0,0 +1,149 @@
+package de.materna.structurizr.renderer.theme;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.structurizr.util.Url;
+import com.structurizr.view.AbstractStyle;
+import com.structurizr.view.ColorScheme;
+import com.structurizr.view.ElementStyle;
+import com.structurizr.view.RelationshipStyle;
+import com.structurizr.view.Styles;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * Adds the styles of themes to the styles of a workspace. Structurizr only accepts themes as instances of a
+ * package-private type, i.e. the styles of the themes are inlined instead. Structurizr resolves the style of a tag by
+ * applying the matching styles of all themes and then the ones of the workspace, each one if defined for all color
+ * schemes or the requested one. Inlining keeps this: per tag, there is one style with the properties resolved for all
+ * color schemes, followed by one per color scheme with the properties resolved for it.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class ThemeStyleUtil {
+
+    // same leniency as Structurizr when reading themes
+    private static final ObjectMapper THEME_MAPPER = JsonMapper.builder()
+            .enable(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    // copies only the properties set on a style
+    private static final ObjectMapper STYLE_MAPPER = JsonMapper.builder()
+            .serializationInclusion(JsonInclude.Include.NON_NULL)
+            .build();
+
+    /**
+     * Reads the styles of a theme. Relative icons are resolved against the URL of the theme, as done by Structurizr.
+     *
+     * @param url The URL of the theme.
+     * @param json The theme as JSON.
+     *
+     * @return The styles of the theme.
+     *
+     * @throws IOException In case the theme could not be read.
+     */
+    static ThemeStyles read(String url, String json) throws IOException {
+        JsonNode theme = THEME_MAPPER.readTree(json);
+        List<ElementStyle> elements = readStyles(theme.get("elements"), ElementStyle[].class);
+        List<RelationshipStyle> relationships = readStyles(theme.get("relationships"), RelationshipStyle[].class);
+
+        String baseUrl = url.substring(0, url.lastIndexOf('/') + 1);
+        for (ElementStyle element : elements) {
+            String icon = element.getIcon();
+            if (StringUtils.isNotEmpty(icon) && !Url.isHttpUrl(icon) && !Url.isHttpsUrl(icon) && !icon.startsWith("data:image")) {
+                element.setIcon(baseUrl + icon);
+            }
+        }
+        return new ThemeStyles(elements, relationships);
+    }
+
+    /**
+     * @param styles The styles of the workspace.
+     * @param themes The styles of the themes of the workspace in the order referenced.
+     */
+    static void inline(Styles styles, List<ThemeStyles> themes) {
+        if (themes.isEmpty()) {
+            return;
+        }
+
+        List<ElementStyle> elements = new ArrayList<>();
+        themes.forEach(theme -> elements.addAll(theme.elements()));
+        elements.addAll(styles.getElements());
+        styles.clearElementStyles();
+        inline(elements, styles::addElementStyle);
+
+        List<RelationshipStyle> relationships = new ArrayList<>();
+        themes.forEach(theme -> relationships.addAll(theme.relationships()));
+        relationships.addAll(styles.getRelationships());
+        styles.clearRelationshipStyles();
+        inline(relationships, styles::addRelationshipStyle);
+    }
+
+    /*
+     * The styles of a tag for all color schemes are resolved first, so that the ones of a color scheme override them
+     */
+    private static <S extends AbstractStyle> void inline(List<S> layeredStyles, BiFunction<String, ColorScheme, S> addStyle) {
+        Set<String> tags = new LinkedHashSet<>();
+        layeredStyles.forEach(style -> tags.add(style.getTag()));
+        for (String tag : tags) {
+            resolve(layeredStyles, tag, null, addStyle);
+            for (ColorScheme colorScheme : ColorScheme.values()) {
+                resolve(layeredStyles, tag, colorScheme, addStyle);
+            }
+        }
+    }
+
+    private static <S extends AbstractStyle> void resolve(List<S> layeredStyles, String tag, ColorScheme colorScheme, BiFunction<String, ColorScheme, S> addStyle) {
+        boolean defined = layeredStyles.stream()
+                .anyMatch(style -> tag.equals(style.getTag()) && style.getColorScheme() == colorScheme);
+        if (!defined) {
+            return;
+        }
+        S resolved = addStyle.apply(tag, colorScheme);
+        for (S style : layeredStyles) {
+            if (tag.equals(style.getTag()) && (style.getColorScheme() == null || style.getColorScheme() == colorScheme)) {
+                copyProperties(style, resolved);
+            }
+        }
+    }
+
+    private static void copyProperties(AbstractStyle source, AbstractStyle target) {
+        ObjectNode properties = STYLE_MAPPER.valueToTree(source);
+        // custom properties are added to the ones of the target instead of replacing them
+        properties.remove("properties");
+        try {
+            STYLE_MAPPER.readerForUpdating(target).readValue(properties);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to copy style " + source.getTag(), e);
+        }
+        source.getProperties().forEach(target::addProperty);
+    }
+
+    private static <S> List<S> readStyles(JsonNode styles, Class<S[]> type) throws IOException {
+        if (styles == null || styles.isNull()) {
+            return List.of();
+        }
+        return new ArrayList<>(Arrays.asList(THEME_MAPPER.treeToValue(styles, type)));
+    }
+
+    /**
+     * @param elements The element styles of a theme.
+     * @param relationships The relationship styles of a theme.
+     */
+    record ThemeStyles(List<ElementStyle> elements, List<RelationshipStyle> relationships) {
+    }
+
+}
@@ -0,0 +1,224 @@
+package de.materna.structurizr.renderer;
+
+import com.structurizr.Workspace;
+import com.structurizr.util.WorkspaceUtils;
+import de.materna.structurizr.renderer.theme.ThemeCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AbstractDiagramExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path workspacePath;
+
+    private ThemeCache themeCache;
+
+    private Renders renders;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.workspacePath = this.tempDir.resolve("workspace.dsl");
+        Files.writeString(this.workspacePath, """
+                workspace {
+                    model {
+                        a = softwareSystem "A"
+                    }
+                    views {
+                        systemContext a "context" {
+                            include *
+                        }
+                    }
+                }
+                """);
+        this.themeCache = new ThemeCache(this.tempDir.resolve("themes"), Duration.ofDays(1), true);
+        this.renders = new Renders();
+    }
+
+    @Test
+    void concurrentRequestsForSameViewRenderOnce() throws Exception {
+        File outputDir = this.tempDir.resolve("out").toFile();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // separate exporters, e.g. of different renderers, writing the same diagram
+            Future<Map<String, Path>> first = executor.submit(() -> export(new BlockingExporter(this.renders), outputDir));
+            assertTrue(this.renders.rendering.await(1, TimeUnit.MINUTES));
+            AtomicReference<Thread> joiningThread = new AtomicReference<>();
+            Future<Map<String, Path>> second = executor.submit(() -> {
+                joiningThread.set(Thread.currentThread());
+                return export(new BlockingExporter(this.renders), outputDir);
+            });
+            awaitWaiting(joiningThread);
+
+            this.renders.release.countDown();
+
+            assertEquals(first.get(1, TimeUnit.MINUTES), second.get(1, TimeUnit.MINUTES));
+            assertEquals(1, this.renders.count.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentRequestsForSameViewShareFailure() throws Exception {
+        this.renders.failure = new StructurizrRenderingException("rendering failed");
+        File outputDir = this.tempDir.resolve("out").toFile();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Map<String, Path>> first = executor.submit(() -> export(new BlockingExporter(this.renders), outputDir));
+            assertTrue(this.renders.rendering.await(1, TimeUnit.MINUTES));
+            AtomicReference<Thread> joiningThread = new AtomicReference<>();
+            Future<Map<String, Path>> second = executor.submit(() -> {
+                joiningThread.set(Thread.currentThread());
+                return export(new BlockingExporter(this.renders), outputDir);
+            });
+            awaitWaiting(joiningThread);
+
+            this.renders.release.countDown();
+
+            for (Future<Map<String, Path>> export : List.of(first, second)) {
+                Exception e = assertThrows(Exception.class, () -> export.get(1, TimeUnit.MINUTES));
+                assertEquals(this.renders.failure, e.getCause());
+            }
+            assertEquals(1, this.renders.count.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rendersSameViewForEachOutputDirectory() throws Exception {
+        this.renders.release.countDown();
+        BlockingExporter exporter = new BlockingExporter(this.renders);
+
+        export(exporter, this.tempDir.resolve("first").toFile());
+        export(exporter, this.tempDir.resolve("second").toFile());
+
+        assertEquals(2, this.renders.count.get());
+    }
+
+    @Test
+    void servesRenderedViewWithoutRenderingAgain() throws Exception {
+        this.renders.release.countDown();
+        File outputDir = this.tempDir.resolve("out").toFile();
+
+        Map<String, Path> rendered = export(new BlockingExporter(this.renders), outputDir);
+        Map<String, Path> served = export(new BlockingExporter(this.renders), outputDir);
+
+        assertEquals(rendered, served);
+        assertEquals(1, this.renders.count.get());
+    }
+
+    @Test
+    void exportsWorkspaceJsonWithoutWorkspacePath() throws Exception {
+        this.renders.release.countDown();
+        Path workspaceJsonPath = this.tempDir.resolve("workspace.json");
+        WorkspaceUtils.saveWorkspaceToJson(WorkspaceLoader.read(this.workspacePath), workspaceJsonPath.toFile());
+        BlockingExporter exporter = new BlockingExporter(this.renders);
+        exporter.setThemeCache(this.themeCache);
+
+        Map<String, Path> exported = exporter.export(null, workspaceJsonPath, this.tempDir.resolve("out").toFile(), "context");
+
+        assertTrue(Files.isRegularFile(exported.get("context")));
+        assertEquals(1, this.renders.count.get());
+    }
+
+    @Test
+    void failsWithoutWorkspaceFile() {
+        BlockingExporter exporter = new BlockingExporter(this.renders);
+        exporter.setThemeCache(this.themeCache);
+
+        assertThrows(StructurizrRenderingException.class, () -> exporter.export(null, null, this.tempDir.resolve("out").toFile(), "context"));
+    }
+
+    private Map<String, Path> export(BlockingExporter exporter, File outputDir) throws StructurizrRenderingException {
+        exporter.setThemeCache(this.themeCache);
+        return exporter.export(this.workspacePath, null, outputDir, "context");
+    }
+
+    /*
+     * Waits until the thread is blocked, i.e. the request joined the pending rendering
+     */
+    private static void awaitWaiting(AtomicReference<Thread> thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while ((thread.get() == null || thread.get().getState() != Thread.State.WAITING) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /*
+     * Renderings of all exporters of a test, each one blocked until released
+     */
+    private static final class Renders {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        private final CountDownLatch rendering = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private StructurizrRenderingException failure;
+
+    }
+
+    private static final class BlockingExporter extends AbstractDiagramExporter {
+
+        private final Renders renders;
+
+        private BlockingExporter(Renders renders) {
+            this.renders = renders;
+        }
+
+        @Override
+        protected Path export(Path workspacePath, Workspace workspace, Path workspaceJsonPath, File outputDir, String viewKey) throws StructurizrRenderingException {
+            this.renders.count.incrementAndGet();
+            this.renders.rendering.countDown();
+            try {
+                this.renders.release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StructurizrRenderingException("Interrupted", e);
+            }
+            if (this.renders.failure != null) {
+                throw this.renders.failure;
+            }
+
+            Path outputFile = constructOutputFilePath(outputDir, viewKey);
+            try {
+                writeFile("<svg/>", outputFile, constructOutputHashFilePath(outputFile, buildHash(workspacePath, workspaceJsonPath, viewKey)),
+                        buildThemesFingerprint(workspace));
+            } catch (IOException e) {
+                throw new StructurizrRenderingException("Failed to write diagram", e);
+            }
+            return outputFile;
+        }
+
+        @Override
+        protected String getRendererString() {
+            return "Test";
+        }
+
+    }
+
+}
@@ -0,0 +1,149 @@
+package de.materna.structurizr.renderer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class OutputFileUtilTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writesContentIntoNewDirectory() throws Exception {
+        Path file = this.tempDir.resolve("out").resolve("view.svg");
+
+        assertTrue(OutputFileUtil.write(file, bytes("<svg/>")));
+
+        assertEquals("<svg/>", Files.readString(file));
+        assertEquals(List.of("view.svg"), listFileNames(file.getParent()));
+    }
+
+    @Test
+    void skipsWriteOfUnchangedContent() throws Exception {
+        Path file = this.tempDir.resolve("view.svg");
+        OutputFileUtil.write(file, bytes("<svg/>"));
+        FileTime lastModified = FileTime.fromMillis(1_000_000_000L);
+        Files.setLastModifiedTime(file, lastModified);
+
+        assertFalse(OutputFileUtil.write(file, bytes("<svg/>")));
+
+        assertEquals(lastModified, Files.getLastModifiedTime(file));
+    }
+
+    @Test
+    void replacesChangedContent() throws Exception {
+        Path file = this.tempDir.resolve("view.svg");
+        OutputFileUtil.write(file, bytes("<svg>old</svg>"));
+
+        assertTrue(OutputFileUtil.write(file, bytes("<svg>new</svg>")));
+
+        assertEquals("<svg>new</svg>", Files.readString(file));
+        assertEquals(List.of("view.svg"), listFileNames(this.tempDir));
+    }
+
+    @Test
+    void readersNeverSeePartiallyWrittenContent() throws Exception {
+        Path file = this.tempDir.resolve("view.svg");
+        byte[] first = new byte[1024 * 1024];
+        byte[] second = new byte[1024 * 1024];
+        Arrays.fill(first, (byte) 'a');
+        Arrays.fill(second, (byte) 'b');
+        OutputFileUtil.write(file, first);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (byte[] content : List.of(first, second)) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 20; i++) {
+                        OutputFileUtil.write(file, content);
+                    }
+                    return null;
+                }));
+            }
+            Future<Integer> reader = executor.submit(() -> {
+                int reads = 0;
+                while (writing.get()) {
+                    byte[] content = Files.readAllBytes(file);
+                    assertTrue(Arrays.equals(first, content) || Arrays.equals(second, content), "Read partially written content");
+                    reads++;
+                }
+                return reads;
+            });
+            for (Future<?> writer : writers) {
+                writer.get(1, TimeUnit.MINUTES);
+            }
+            writing.set(false);
+            assertTrue(reader.get(1, TimeUnit.MINUTES) > 0);
+        } finally {
+            writing.set(false);
+            executor.shutdownNow();
+        }
+        assertEquals(List.of("view.svg"), listFileNames(this.tempDir));
+    }
+
+    @Test
+    void createsLockFileWritableForAllUsersInsideTargetDirectory() throws Exception {
+        Path file = this.tempDir.resolve("view.svg");
+
+        OutputFileUtil.write(file, bytes("<svg/>"));
+
+        Path lockFile = this.tempDir.resolve(OutputFileUtil.LOCK_FILE_NAME);
+        assertTrue(Files.isRegularFile(lockFile));
+        if (Files.getFileAttributeView(lockFile, PosixFileAttributeView.class) != null) {
+            assertEquals("rw-rw-rw-", PosixFilePermissions.toString(Files.getPosixFilePermissions(lockFile)));
+        }
+    }
+
+    @Test
+    void writesWithoutLockFileThatCanNotBeOpened() throws Exception {
+        Path lockFile = Files.createFile(this.tempDir.resolve(OutputFileUtil.LOCK_FILE_NAME));
+        // the lock file of another user, unless running with privileges allowing to write it anyway
+        assumeTrue(lockFile.toFile().setWritable(false, false) && !Files.isWritable(lockFile));
+        Path file = this.tempDir.resolve("view.svg");
+
+        assertTrue(OutputFileUtil.write(file, bytes("<svg/>")));
+
+        assertArrayEquals(bytes("<svg/>"), Files.readAllBytes(file));
+    }
+
+    /*
+     * The files of the directory except for the lock file
+     */
+    private static List<String> listFileNames(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> f.getFileName().toString())
+                    .filter(name -> !name.equals(OutputFileUtil.LOCK_FILE_NAME))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,162 @@
+package de.materna.structurizr.renderer;
+
+import com.structurizr.Workspace;
+import de.materna.structurizr.renderer.theme.ThemeCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkspaceLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path workspacePath;
+
+    private BlockingThemeCache themeCache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.workspacePath = this.tempDir.resolve("workspace.dsl");
+        Files.writeString(this.workspacePath, """
+                workspace {
+                    model {
+                        a = softwareSystem "A"
+                    }
+                    views {
+                        systemContext a "context" {
+                            include *
+                        }
+                    }
+                }
+                """);
+        this.themeCache = new BlockingThemeCache(this.tempDir.resolve("themes"));
+    }
+
+    @Test
+    void concurrentLoadsOfSameWorkspaceShareOneParse() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Workspace> first = executor.submit(() -> new WorkspaceLoader(this.workspacePath, this.themeCache).load());
+            assertTrue(this.themeCache.parsing.await(1, TimeUnit.MINUTES));
+            AtomicReference<Thread> joiningThread = new AtomicReference<>();
+            Future<Workspace> second = executor.submit(() -> {
+                joiningThread.set(Thread.currentThread());
+                return new WorkspaceLoader(this.workspacePath, this.themeCache).load();
+            });
+            awaitWaiting(joiningThread);
+
+            this.themeCache.release.countDown();
+
+            assertSame(first.get(1, TimeUnit.MINUTES), second.get(1, TimeUnit.MINUTES));
+            assertEquals(1, this.themeCache.parses.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentLoadsOfSameWorkspaceShareFailure() throws Exception {
+        this.themeCache.failure = new IllegalStateException("theme not available");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Workspace> first = executor.submit(() -> new WorkspaceLoader(this.workspacePath, this.themeCache).load());
+            assertTrue(this.themeCache.parsing.await(1, TimeUnit.MINUTES));
+            AtomicReference<Thread> joiningThread = new AtomicReference<>();
+            Future<Workspace> second = executor.submit(() -> {
+                joiningThread.set(Thread.currentThread());
+                return new WorkspaceLoader(this.workspacePath, this.themeCache).load();
+            });
+            awaitWaiting(joiningThread);
+
+            this.themeCache.release.countDown();
+
+            for (Future<Workspace> load : List.of(first, second)) {
+                Exception e = assertThrows(Exception.class, () -> load.get(1, TimeUnit.MINUTES));
+                assertTrue(e.getCause() instanceof StructurizrRenderingException, "Unexpected failure " + e.getCause());
+            }
+            assertEquals(1, this.themeCache.parses.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void subsequentLoadsParseAgain() throws Exception {
+        this.themeCache.release.countDown();
+
+        Workspace first = new WorkspaceLoader(this.workspacePath, this.themeCache).load();
+        Workspace second = new WorkspaceLoader(this.workspacePath, this.themeCache).load();
+
+        assertNotSame(first, second);
+        assertEquals(2, this.themeCache.parses.get());
+    }
+
+    @Test
+    void loaderParsesOnlyOnce() throws Exception {
+        this.themeCache.release.countDown();
+        WorkspaceLoader loader = new WorkspaceLoader(this.workspacePath, this.themeCache);
+
+        assertSame(loader.load(), loader.load());
+        assertEquals(1, this.themeCache.parses.get());
+    }
+
+    /*
+     * Waits until the thread is blocked, i.e. the loader joined the pending parse
+     */
+    private static void awaitWaiting(AtomicReference<Thread> thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while ((thread.get() == null || thread.get().getState() != Thread.State.WAITING) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /*
+     * Counts the parses of workspaces, blocking each one until released
+     */
+    private static final class BlockingThemeCache extends ThemeCache {
+
+        private final AtomicInteger parses = new AtomicInteger();
+
+        private final CountDownLatch parsing = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private RuntimeException failure;
+
+        private BlockingThemeCache(Path cacheDir) {
+            super(cacheDir, Duration.ofDays(1), true);
+        }
+
+        @Override
+        public void loadThemes(Path workspacePath, Workspace workspace) throws Exception {
+            this.parses.incrementAndGet();
+            this.parsing.countDown();
+            this.release.await();
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            super.loadThemes(workspacePath, workspace);
+        }
+
+    }
+
+}
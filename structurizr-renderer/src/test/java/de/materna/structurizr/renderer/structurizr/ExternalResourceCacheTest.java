@@ -0,0 +1,145 @@
+package de.materna.structurizr.renderer.structurizr;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExternalResourceCacheTest {
+
+    private static final String URL = "https://example.com/icon.png";
+
+    private static final String OTHER_URL = "https://example.com/other.png";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void servesPersistedResourceFromNewCache() {
+        createCache(1024).put(URL, resource("icon", Instant.now()));
+
+        ExternalResourceCache.CachedResource cached = createCache(1024).get(URL).orElseThrow();
+
+        assertEquals("image/png", cached.contentType());
+        assertArrayEquals(bytes("icon"), cached.body());
+    }
+
+    @Test
+    void expiresResourcesOlderThanTimeToLive() {
+        ExternalResourceCache cache = createCache(1024);
+
+        cache.put(URL, resource("icon", Instant.now().minus(2, ChronoUnit.DAYS)));
+        cache.put(OTHER_URL, resource("other", Instant.now()));
+
+        assertTrue(cache.isExpired(cache.get(URL).orElseThrow()));
+        assertFalse(cache.isExpired(cache.get(OTHER_URL).orElseThrow()));
+        // the time of the fetch is persisted as well
+        assertTrue(createCache(1024).isExpired(createCache(1024).get(URL).orElseThrow()));
+        assertFalse(createCache(1024).isExpired(createCache(1024).get(OTHER_URL).orElseThrow()));
+    }
+
+    @Test
+    void keepsFingerprintOfUnchangedResource() {
+        ExternalResourceCache cache = createCache(1024);
+        cache.put(URL, resource("icon", Instant.now().minus(2, ChronoUnit.DAYS)));
+        String fingerprint = cache.fingerprint(List.of(URL));
+
+        cache.put(URL, resource("icon", Instant.now()));
+
+        assertTrue(cache.isCurrent(fingerprint));
+        assertTrue(createCache(1024).isCurrent(fingerprint));
+    }
+
+    @Test
+    void changesFingerprintOfChangedResource() {
+        ExternalResourceCache cache = createCache(1024);
+        cache.put(URL, resource("icon", Instant.now()));
+        String fingerprint = cache.fingerprint(List.of(URL));
+
+        cache.put(URL, resource("changed icon", Instant.now()));
+
+        assertNotEquals(fingerprint, cache.fingerprint(List.of(URL)));
+        assertFalse(cache.isCurrent(fingerprint));
+        assertFalse(createCache(1024).isCurrent(fingerprint));
+    }
+
+    @Test
+    void changesFingerprintOnceResourceIsCached() {
+        ExternalResourceCache cache = createCache(1024);
+        String fingerprint = cache.fingerprint(List.of(URL));
+
+        cache.put(URL, resource("icon", Instant.now()));
+
+        assertFalse(cache.isCurrent(fingerprint));
+    }
+
+    @Test
+    void prunesLeastRecentlyUsedResourcesBeyondMaximumSize() throws Exception {
+        createCache(10).put(URL, resource("first", Instant.now()));
+        makeFilesOlder();
+
+        // a new cache determines the size of the directory written before
+        createCache(10).put(OTHER_URL, resource("second", Instant.now()));
+
+        assertTrue(createCache(10).get(URL).isEmpty());
+        assertArrayEquals(bytes("second"), createCache(10).get(OTHER_URL).orElseThrow().body());
+        assertEquals(2, countFiles());
+    }
+
+    @Test
+    void keepsResourcesWithinMaximumSize() {
+        ExternalResourceCache cache = createCache(11);
+
+        cache.put(URL, resource("first", Instant.now()));
+        cache.put(OTHER_URL, resource("second", Instant.now()));
+        // replacing a resource accounts for its previous size
+        cache.put(URL, resource("third", Instant.now()));
+
+        assertTrue(createCache(11).get(URL).isPresent());
+        assertTrue(createCache(11).get(OTHER_URL).isPresent());
+    }
+
+    private ExternalResourceCache createCache(long maxDiskBytes) {
+        return new ExternalResourceCache(this.tempDir, Duration.ofDays(1), 1024, maxDiskBytes);
+    }
+
+    private void makeFilesOlder() throws Exception {
+        try (Stream<Path> files = Files.list(this.tempDir)) {
+            for (Path file : files.toList()) {
+                Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS)));
+            }
+        }
+    }
+
+    /*
+     * The resource files except for the lock file
+     */
+    private long countFiles() throws Exception {
+        try (Stream<Path> files = Files.list(this.tempDir)) {
+            return files.filter(f -> !f.getFileName().toString().startsWith(".")).count();
+        }
+    }
+
+    private static ExternalResourceCache.CachedResource resource(String body, Instant fetched) {
+        return new ExternalResourceCache.CachedResource("image/png", bytes(body), fetched);
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,137 @@
+package de.materna.structurizr.renderer.structurizr;
+
+import de.materna.structurizr.renderer.StructurizrRenderingException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RenderingQueueTest {
+
+    private final RenderingQueue queue = new RenderingQueue();
+
+    @Test
+    void rendersRequestedViewsInRequestOrderBeforeRemainingViews() {
+        this.queue.request("b");
+        this.queue.request("a");
+
+        this.queue.acceptViewKeys(Set.of("a", "b", "c", "d"), key -> false);
+
+        assertEquals(List.of("b", "a", "c", "d"), drain());
+    }
+
+    @Test
+    void rendersViewRequestedWhileRenderingBeforeRemainingViews() {
+        this.queue.request("a");
+        this.queue.acceptViewKeys(Set.of("a", "b", "c"), key -> false);
+        assertEquals("a", this.queue.nextView());
+
+        this.queue.request("c");
+
+        assertEquals(List.of("c", "b"), drain());
+    }
+
+    @Test
+    void skipsUpToDateViews() {
+        this.queue.request("a");
+
+        this.queue.acceptViewKeys(Set.of("a", "b", "c"), key -> key.equals("b"));
+
+        assertEquals(List.of("a", "c"), drain());
+    }
+
+    @Test
+    void sharesViewAmongRequests() {
+        CompletableFuture<String> view = this.queue.request("a");
+
+        assertSame(view, this.queue.request("a"));
+        assertSame(view, this.queue.view("a"));
+        this.queue.acceptViewKeys(Set.of("a", "b"), key -> false);
+        assertEquals(List.of("a", "b"), drain());
+    }
+
+    @Test
+    void stopsRenderingRemainingViewsOnceCancelled() {
+        this.queue.request("a");
+        this.queue.acceptViewKeys(Set.of("a", "b", "c"), key -> false);
+        assertEquals("a", this.queue.nextView());
+
+        this.queue.cancel();
+
+        assertNull(this.queue.nextView());
+    }
+
+    @Test
+    void rendersViewsRequestedAfterCancellation() {
+        this.queue.acceptViewKeys(Set.of("a", "b", "c"), key -> false);
+        this.queue.cancel();
+
+        this.queue.request("c");
+
+        assertEquals(List.of("c"), drain());
+    }
+
+    @Test
+    void rejectsRequestsOnceNoViewIsLeft() {
+        this.queue.acceptViewKeys(Set.of("a"), key -> false);
+        assertEquals(List.of("a"), drain());
+
+        assertNull(this.queue.request("b"));
+    }
+
+    @Test
+    void failsRequestedViewsNotPartOfTheWorkspace() {
+        CompletableFuture<String> requestedBefore = this.queue.request("x");
+
+        this.queue.acceptViewKeys(Set.of("a"), key -> false);
+        CompletableFuture<String> requestedAfter = this.queue.request("y");
+
+        assertFailsWith(StructurizrRenderingException.class, requestedBefore);
+        assertFailsWith(StructurizrRenderingException.class, requestedAfter);
+        assertEquals(List.of("a"), drain());
+    }
+
+    @Test
+    void failsViewsNotRenderedWhenClosed() {
+        CompletableFuture<String> rendered = this.queue.request("a");
+        CompletableFuture<String> pending = this.queue.request("b");
+        this.queue.acceptViewKeys(Set.of("a", "b"), key -> false);
+        this.queue.nextView();
+        rendered.complete("<svg/>");
+
+        this.queue.close(new CancellationException("closed"));
+
+        assertEquals("<svg/>", rendered.join());
+        assertFailsWith(CancellationException.class, pending);
+        // rendered views are still served, failed ones are rendered again by a new session
+        assertSame(rendered, this.queue.request("a"));
+        assertNull(this.queue.request("b"));
+    }
+
+    private List<String> drain() {
+        List<String> keys = new ArrayList<>();
+        String key;
+        while ((key = this.queue.nextView()) != null) {
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    private static void assertFailsWith(Class<? extends Throwable> expected, CompletableFuture<String> view) {
+        assertTrue(view.isCompletedExceptionally());
+        Throwable cause = assertThrows(Exception.class, view::join);
+        assertInstanceOf(expected, cause instanceof CompletionException ? cause.getCause() : cause);
+    }
+
+}
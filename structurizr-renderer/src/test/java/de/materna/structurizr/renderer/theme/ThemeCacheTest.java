@@ -0,0 +1,182 @@
+package de.materna.structurizr.renderer.theme;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.structurizr.Workspace;
+import com.structurizr.http.HttpClient;
+import com.structurizr.model.Element;
+import com.structurizr.model.Person;
+import com.structurizr.model.Relationship;
+import com.structurizr.model.SoftwareSystem;
+import com.structurizr.view.ColorScheme;
+import com.structurizr.view.Styles;
+import com.structurizr.view.ThemeUtils;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ThemeCacheTest {
+
+    private static final String THEME = """
+            {
+              "name": "Test",
+              "elements": [
+                { "tag": "Element", "background": "#111111", "color": "#ffffff", "shape": "RoundedBox", "properties": { "theme": "true" } },
+                { "tag": "Person", "colorScheme": "Dark", "background": "#222222", "stroke": "#333333" },
+                { "tag": "Person", "shape": "Person", "icon": "icons/person.png" },
+                { "tag": "Database", "shape": "Cylinder", "icon": "https://example.com/database.png", "unknown": "ignored" }
+              ],
+              "relationships": [
+                { "tag": "Relationship", "thickness": 3, "color": "#999999" },
+                { "tag": "Relationship", "colorScheme": "Dark", "color": "#eeeeee" }
+              ]
+            }
+            """;
+
+    private static final String OTHER_THEME = """
+            {
+              "elements": [
+                { "tag": "Element", "background": "#444444" },
+                { "tag": "Database", "colorScheme": "Light", "background": "#555555" }
+              ]
+            }
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Map<String, String> themes = Map.of("/themes/theme.json", THEME, "/themes/other.json", OTHER_THEME);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", exchange -> {
+            this.requests.incrementAndGet();
+            String theme = themes.get(exchange.getRequestURI().getPath());
+            if (theme == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                byte[] body = theme.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        this.server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.server.stop(0);
+    }
+
+    @Test
+    void resolvesStylesLikeStructurizr() throws Exception {
+        Workspace expected = createWorkspace();
+        HttpClient httpClient = new HttpClient();
+        httpClient.allow(".*");
+        ThemeUtils.loadThemes(expected, httpClient);
+
+        Workspace actual = createWorkspace();
+        new ThemeCache(this.tempDir, Duration.ofDays(1), false).loadThemes(actual);
+
+        ObjectMapper mapper = new ObjectMapper();
+        Styles expectedStyles = expected.getViews().getConfiguration().getStyles();
+        Styles actualStyles = actual.getViews().getConfiguration().getStyles();
+        for (Element element : expected.getModel().getElements()) {
+            Element actualElement = actual.getModel().getElement(element.getId());
+            assertEquals(mapper.writeValueAsString(expectedStyles.findElementStyle(element)),
+                    mapper.writeValueAsString(actualStyles.findElementStyle(actualElement)));
+            for (ColorScheme colorScheme : ColorScheme.values()) {
+                assertEquals(mapper.writeValueAsString(expectedStyles.findElementStyle(element, colorScheme)),
+                        mapper.writeValueAsString(actualStyles.findElementStyle(actualElement, colorScheme)));
+            }
+        }
+        for (Relationship relationship : expected.getModel().getRelationships()) {
+            Relationship actualRelationship = actual.getModel().getRelationship(relationship.getId());
+            for (ColorScheme colorScheme : ColorScheme.values()) {
+                assertEquals(mapper.writeValueAsString(expectedStyles.findRelationshipStyle(relationship, colorScheme)),
+                        mapper.writeValueAsString(actualStyles.findRelationshipStyle(actualRelationship, colorScheme)));
+            }
+        }
+    }
+
+    @Test
+    void resolvesRelativeIconsAgainstThemeUrl() throws Exception {
+        Workspace workspace = createWorkspace();
+
+        new ThemeCache(this.tempDir, Duration.ofDays(1), false).loadThemes(workspace);
+
+        Styles styles = workspace.getViews().getConfiguration().getStyles();
+        assertEquals(url("/themes/icons/person.png"), styles.findElementStyle(workspace.getModel().getPersonWithName("User")).getIcon());
+        assertEquals("https://example.com/database.png", styles.findElementStyle(workspace.getModel().getSoftwareSystemWithName("Database")).getIcon());
+    }
+
+    @Test
+    void loadsCachedThemesWhileOffline() throws Exception {
+        new ThemeCache(this.tempDir, Duration.ofDays(1), false).loadThemes(createWorkspace());
+        this.server.stop(0);
+        Workspace workspace = createWorkspace();
+
+        new ThemeCache(this.tempDir, Duration.ofDays(1), true).loadThemes(workspace);
+
+        assertEquals(2, this.requests.get());
+        assertEquals("#444444", workspace.getViews().getConfiguration().getStyles()
+                .findElementStyle(workspace.getModel().getPersonWithName("User")).getBackground());
+    }
+
+    @Test
+    void failsForThemeNotCachedWhileOffline() {
+        ThemeCache themeCache = new ThemeCache(this.tempDir, Duration.ofDays(1), true);
+
+        assertThrows(Exception.class, () -> themeCache.loadThemes(createWorkspace()));
+    }
+
+    /*
+     * A workspace whose styles partly override and partly extend the ones of its themes
+     */
+    private Workspace createWorkspace() {
+        Workspace workspace = new Workspace("Workspace", "");
+        Person user = workspace.getModel().addPerson("User", "");
+        SoftwareSystem database = workspace.getModel().addSoftwareSystem("Database", "");
+        database.addTags("Database");
+        SoftwareSystem system = workspace.getModel().addSoftwareSystem("System", "");
+        user.uses(system, "Uses");
+        system.uses(database, "Reads from").addTags("Async");
+
+        workspace.getViews().getConfiguration().addTheme(url("/themes/theme.json"));
+        workspace.getViews().getConfiguration().addTheme(url("/themes/other.json"));
+
+        Styles styles = workspace.getViews().getConfiguration().getStyles();
+        styles.addElementStyle("Element").color("#aaaaaa").addProperty("workspace", "true");
+        styles.addElementStyle("Person").stroke("#cccccc");
+        styles.addElementStyle("Person", ColorScheme.Dark).color("#bbbbbb");
+        styles.addElementStyle("Person", ColorScheme.Light).opacity(50);
+        styles.addRelationshipStyle("Async").dashed(true);
+        styles.addRelationshipStyle("Relationship", ColorScheme.Light).thickness(2);
+        return workspace;
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + this.server.getAddress().getPort() + path;
+    }
+
+}